@@ -4,6 +4,7 @@ plugins {
     signing
     id("com.github.johnrengelman.shadow") version "7.1.2"
     id("io.github.gradle-nexus.publish-plugin") version "1.1.0"
+    id("me.champeau.jmh") version "0.6.8"
 }
 
 // gradlew publishToSonatype closeSonatypeStagingRepository for staging and manual release
@@ -45,6 +46,14 @@ tasks.getByName<Test>("test") {
     failFast = true
 }
 
+// gradlew jmh to run the codec benchmarks, results are written to build/results/jmh
+
+jmh {
+    jmhVersion.set("1.35")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
 tasks.jar {
     archiveBaseName.set(project.name)
     manifest.attributes(
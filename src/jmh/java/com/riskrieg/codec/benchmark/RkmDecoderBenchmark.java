@@ -0,0 +1,97 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.benchmark;
+
+import com.riskrieg.codec.RkmImageEncoding;
+import com.riskrieg.codec.benchmark.SyntheticMaps.MapSize;
+import com.riskrieg.codec.decode.LazyRkmMap;
+import com.riskrieg.codec.decode.RkmDecoder;
+import com.riskrieg.codec.decode.RkmDecoderOptions;
+import com.riskrieg.codec.encode.RkmEncoder;
+import com.riskrieg.codec.encode.RkmEncoderOptions;
+import com.riskrieg.map.RkmMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RkmDecoderBenchmark {
+
+  @Param
+  public MapSize size;
+
+  @Param({"PNG", "ARGB", "INDEXED_RUN_LENGTH"})
+  public RkmImageEncoding imageEncoding;
+
+  private byte[] data;
+  private Path path;
+  private RkmDecoder decoder;
+  private RkmDecoder parallelDecoder;
+
+  @Setup
+  public void setup() throws IOException, NoSuchAlgorithmException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new RkmEncoder(RkmEncoderOptions.builder().setImageEncoding(imageEncoding).build()).encode(SyntheticMaps.map(size), output);
+    data = output.toByteArray();
+    path = Files.createTempFile("rkm-benchmark-", ".rkm");
+    Files.write(path, data);
+    decoder = new RkmDecoder();
+    parallelDecoder = new RkmDecoder(RkmDecoderOptions.builder().setParallel(true).build());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  @Benchmark
+  public RkmMap decodeBytes() throws IOException, NoSuchAlgorithmException {
+    return decoder.decode(data);
+  }
+
+  @Benchmark
+  public RkmMap decodePath() throws IOException, NoSuchAlgorithmException {
+    return decoder.decode(path);
+  }
+
+  @Benchmark
+  public RkmMap decodeMapped() throws IOException, NoSuchAlgorithmException {
+    return decoder.decodeMapped(path);
+  }
+
+  @Benchmark
+  public RkmMap decodeParallel() throws IOException, NoSuchAlgorithmException {
+    return parallelDecoder.decode(path);
+  }
+
+  @Benchmark
+  public LazyRkmMap decodeLazy() throws IOException, NoSuchAlgorithmException {
+    return decoder.decodeLazy(path);
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.benchmark;
+
+import com.riskrieg.codec.benchmark.SyntheticMaps.MapSize;
+import com.riskrieg.codec.encode.RkmEncoder;
+import com.riskrieg.codec.encode.RkmEncoderOptions;
+import com.riskrieg.map.RkmMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RkmEncoderBenchmark {
+
+  @Param
+  public MapSize size;
+
+  @Param({"false", "true"})
+  public boolean compressGraph;
+
+  private RkmMap map;
+  private RkmEncoder encoder;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setup() throws IOException, NoSuchAlgorithmException {
+    map = SyntheticMaps.map(size);
+    encoder = new RkmEncoder(RkmEncoderOptions.builder().setCompressGraph(compressGraph).build());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    encoder.encode(map, output);
+    buffer = ByteBuffer.allocateDirect(output.size());
+  }
+
+  @Benchmark
+  public void encode() throws IOException, NoSuchAlgorithmException {
+    encoder.encode(map, OutputStream.nullOutputStream());
+  }
+
+  @Benchmark
+  public void encodeToBuffer() throws IOException, NoSuchAlgorithmException {
+    buffer.clear();
+    encoder.encode(map, buffer);
+  }
+
+}
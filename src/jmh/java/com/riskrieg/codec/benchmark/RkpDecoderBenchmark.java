@@ -0,0 +1,52 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.benchmark;
+
+import com.riskrieg.codec.decode.RkpDecoder;
+import com.riskrieg.codec.encode.RkpEncoder;
+import com.riskrieg.palette.RkpPalette;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RkpDecoderBenchmark {
+
+  private byte[] data;
+  private RkpDecoder decoder;
+
+  @Setup
+  public void setup() throws IOException, NoSuchAlgorithmException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new RkpEncoder().encode(SyntheticMaps.palette(), output);
+    data = output.toByteArray();
+    decoder = new RkpDecoder();
+  }
+
+  @Benchmark
+  public RkpPalette decode() throws IOException {
+    return decoder.decode(data);
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.benchmark;
+
+import com.riskrieg.codec.encode.RkpEncoder;
+import com.riskrieg.codec.encode.RkpEncoderOptions;
+import com.riskrieg.palette.RkpPalette;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RkpEncoderBenchmark {
+
+  @Param({"true", "false"})
+  public boolean prettyPrint;
+
+  private RkpPalette palette;
+  private RkpEncoder encoder;
+
+  @Setup
+  public void setup() {
+    palette = SyntheticMaps.palette();
+    encoder = new RkpEncoder(RkpEncoderOptions.builder().setPrettyPrint(prettyPrint).build());
+  }
+
+  @Benchmark
+  public void encode() throws IOException, NoSuchAlgorithmException {
+    encoder.encode(palette, OutputStream.nullOutputStream());
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.benchmark;
+
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.map.Territory;
+import com.riskrieg.map.territory.Border;
+import com.riskrieg.map.territory.Nucleus;
+import com.riskrieg.map.territory.TerritoryIdentity;
+import com.riskrieg.palette.RkpColor;
+import com.riskrieg.palette.RkpPalette;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Deterministic synthetic inputs for the benchmarks, so that results are comparable between runs. Public, along with {@link MapSize}, because the code JMH generates
+ * for the benchmarks lives in another package and refers to the type of every @Param field.
+ */
+public final class SyntheticMaps {
+
+  private SyntheticMaps() {
+  }
+
+  public enum MapSize {
+    SMALL(100, 1, 256),
+    MEDIUM(1_000, 2, 1_024),
+    LARGE(10_000, 4, 4_096);
+
+    private final int vertexCount;
+    private final int nucleiPerVertex;
+    private final int imageSize;
+
+    MapSize(int vertexCount, int nucleiPerVertex, int imageSize) {
+      this.vertexCount = vertexCount;
+      this.nucleiPerVertex = nucleiPerVertex;
+      this.imageSize = imageSize;
+    }
+  }
+
+  static RkmMap map(MapSize size) {
+    Random random = new Random(size.ordinal());
+    int columns = (int) Math.ceil(Math.sqrt(size.vertexCount));
+    int cellSize = Math.max(1, size.imageSize / columns);
+
+    Set<Territory> vertices = new HashSet<>();
+    for (int v = 0; v < size.vertexCount; v++) {
+      Set<Nucleus> nuclei = new HashSet<>();
+      for (int n = 0; n < size.nucleiPerVertex; n++) {
+        int x = (v % columns) * cellSize + random.nextInt(cellSize);
+        int y = (v / columns) * cellSize + random.nextInt(cellSize);
+        nuclei.add(new Nucleus(x, y));
+      }
+      vertices.add(new Territory(identity(v), nuclei));
+    }
+
+    // Connect each territory to its right and lower neighbours, like a grid of regions.
+    Set<Border> edges = new HashSet<>();
+    for (int v = 0; v < size.vertexCount; v++) {
+      if ((v + 1) % columns != 0 && v + 1 < size.vertexCount) {
+        edges.add(new Border(identity(v), identity(v + 1)));
+      }
+      if (v + columns < size.vertexCount) {
+        edges.add(new Border(identity(v), identity(v + columns)));
+      }
+    }
+
+    return new RkmMap("synthetic-" + size.name().toLowerCase(), "Synthetic " + size.name(), "Benchmark", vertices, edges,
+        baseLayer(size, columns, cellSize, random), textLayer(size, columns, cellSize));
+  }
+
+  static RkpPalette palette() {
+    SortedSet<RkpColor> colors = new TreeSet<>();
+    List<String> names = List.of("Red", "Orange", "Yellow", "Green", "Blue", "Indigo", "Violet", "Grey");
+    for (int i = 0; i < names.size(); i++) {
+      Color color = Color.getHSBColor(i / (float) names.size(), 0.6F, 0.8F);
+      colors.add(new RkpColor(i, names.get(i), color.getRed(), color.getGreen(), color.getBlue()));
+    }
+    return new RkpPalette("Synthetic", colors);
+  }
+
+  private static TerritoryIdentity identity(int vertex) {
+    return new TerritoryIdentity("territory-" + vertex);
+  }
+
+  private static BufferedImage baseLayer(MapSize size, int columns, int cellSize, Random random) {
+    BufferedImage image = new BufferedImage(size.imageSize, size.imageSize, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = image.createGraphics();
+    for (int v = 0; v < size.vertexCount; v++) {
+      graphics.setColor(new Color(200 + random.nextInt(56), 200 + random.nextInt(56), 200 + random.nextInt(56)));
+      graphics.fillRect((v % columns) * cellSize, (v / columns) * cellSize, cellSize, cellSize);
+      graphics.setColor(Color.DARK_GRAY);
+      graphics.drawRect((v % columns) * cellSize, (v / columns) * cellSize, cellSize, cellSize);
+    }
+    graphics.dispose();
+    return image;
+  }
+
+  private static BufferedImage textLayer(MapSize size, int columns, int cellSize) {
+    BufferedImage image = new BufferedImage(size.imageSize, size.imageSize, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.BLACK);
+    graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, Math.max(4, cellSize / 4)));
+    for (int v = 0; v < size.vertexCount; v++) {
+      graphics.drawString(Integer.toString(v), (v % columns) * cellSize + 2, (v / columns) * cellSize + cellSize / 2);
+    }
+    graphics.dispose();
+    return image;
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+/**
+ * Receives timing and size measurements from {@link com.riskrieg.codec.decode.RkmDecoder} and {@link com.riskrieg.codec.encode.RkmEncoder}. Every method does nothing by
+ * default, so implementations only need to override what they are interested in.
+ * <p>
+ * Fields may be decoded concurrently when the decoder has an executor, and image layers of lazily decoded maps are decoded whenever they are first accessed, so
+ * implementations must be thread-safe.
+ * <p>
+ * The same measurements are also recorded as JDK Flight Recorder events in the "Riskrieg / Codec" category whenever a recording has them enabled, whether or not a listener
+ * is set.
+ */
+public interface CodecListener {
+
+  CodecListener NONE = new CodecListener() {
+  };
+
+  /**
+   * Called after a field has been decoded. For the image layer fields, the duration is the time spent decoding the image.
+   */
+  default void fieldDecoded(RkmField field, int lengthInBytes, long durationNanos) {
+  }
+
+  /**
+   * Called instead of {@link #fieldDecoded} when decoding a field throws, before the failure is passed on.
+   */
+  default void fieldDecodeFailed(RkmField field, int lengthInBytes, long durationNanos, Throwable failure) {
+  }
+
+  /**
+   * Called after a field has been built and written, with the length of its data.
+   */
+  default void fieldEncoded(RkmField field, int lengthInBytes, long durationNanos) {
+  }
+
+  /**
+   * Called instead of {@link #fieldEncoded} when building or writing a field throws, before the failure is passed on.
+   */
+  default void fieldEncodeFailed(RkmField field, long durationNanos, Throwable failure) {
+  }
+
+  /**
+   * Called once the checksum of a file has been computed, with the total time spent hashing. When decoding, this is only called if the checksum is verified.
+   */
+  default void checksumComputed(RkmChecksumAlgorithm algorithm, long lengthInBytes, long durationNanos) {
+  }
+
+  /**
+   * Called after a map has been decoded. The allocated bytes only count allocations made on the calling thread, and are -1 if the runtime cannot measure them.
+   */
+  default void mapDecoded(long lengthInBytes, long durationNanos, long allocatedBytes) {
+  }
+
+  /**
+   * Called instead of {@link #mapDecoded} when decoding a map throws, with the number of bytes read before the failure.
+   */
+  default void mapDecodeFailed(long lengthInBytes, long durationNanos, long allocatedBytes, Throwable failure) {
+  }
+
+  /**
+   * Called after a map has been encoded. The allocated bytes only count allocations made on the calling thread, and are -1 if the runtime cannot measure them.
+   */
+  default void mapEncoded(long lengthInBytes, long durationNanos, long allocatedBytes) {
+  }
+
+  /**
+   * Called instead of {@link #mapEncoded} when encoding a map throws, with the number of bytes written before the failure.
+   */
+  default void mapEncodeFailed(long lengthInBytes, long durationNanos, long allocatedBytes, Throwable failure) {
+  }
+
+}
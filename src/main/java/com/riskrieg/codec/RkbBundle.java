@@ -0,0 +1,81 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.palette.RkpPalette;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The named maps and palettes to pack into an .rkb bundle. See {@link RkbField} for the format.
+ */
+public final class RkbBundle {
+
+  private final Map<String, RkmMap> maps;
+  private final Map<String, RkpPalette> palettes;
+
+  private RkbBundle(Builder builder) {
+    this.maps = Collections.unmodifiableMap(new LinkedHashMap<>(builder.maps));
+    this.palettes = Collections.unmodifiableMap(new LinkedHashMap<>(builder.palettes));
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return the maps by name, in the order they were added
+   */
+  public Map<String, RkmMap> maps() {
+    return maps;
+  }
+
+  /**
+   * @return the palettes by name, in the order they were added
+   */
+  public Map<String, RkpPalette> palettes() {
+    return palettes;
+  }
+
+  public static final class Builder {
+
+    private final Map<String, RkmMap> maps = new LinkedHashMap<>();
+    private final Map<String, RkpPalette> palettes = new LinkedHashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder addMap(@NonNull String name, @NonNull RkmMap map) {
+      Objects.requireNonNull(name);
+      Objects.requireNonNull(map);
+      if (maps.putIfAbsent(name, map) != null) {
+        throw new IllegalArgumentException("duplicate map name: " + name);
+      }
+      return this;
+    }
+
+    public Builder addPalette(@NonNull String name, @NonNull RkpPalette palette) {
+      Objects.requireNonNull(name);
+      Objects.requireNonNull(palette);
+      if (palettes.putIfAbsent(name, palette) != null) {
+        throw new IllegalArgumentException("duplicate palette name: " + name);
+      }
+      return this;
+    }
+
+    public RkbBundle build() {
+      return new RkbBundle(this);
+    }
+
+  }
+
+}
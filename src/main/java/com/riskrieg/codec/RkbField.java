@@ -0,0 +1,75 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The fields of an .rkb bundle, which packs many maps and palettes into one file using the same [field-name][length-in-bytes][data] layout as an .rkm file. The file starts
+ * with the eight-byte signature {@code 83 52 4B 42 0D 0A 1A 0A}, followed by any number of {@link #BLOB} fields, and ends with the {@link #DIRECTORY} field.
+ * <p>
+ * Each map is stored as the fields of its .rkm encoding, and each palette as its binary .rkp encoding. Field data that appears more than once, such as an image layer shared
+ * by several variants of a map, is stored in a single blob.
+ */
+public enum RkbField {
+
+  UNKNOWN("UNKN"),
+
+  /**
+   * The data of one or more fields, stored once no matter how many maps or palettes refer to it.
+   * <p>
+   * <b>Field name</b>: BLOB
+   * <p>
+   * <b>Usage</b>: BLOB[length-in-bytes][data]
+   */
+  BLOB("BLOB"),
+
+  /**
+   * The central directory, which lists every blob and every map and palette in the bundle. It must be the last field in the file. The last eight bytes of the field are the
+   * offset of the field itself, which lets readers find it by reading the end of the file, and the four bytes before that are the CRC32C checksum of the rest of the field.
+   * <p>
+   * <b>Field name</b>: BDIR
+   * <p>
+   * <b>Usage</b>: BDIR[length-in-bytes][number-of-blobs-as-int][blob1]...[blobN][number-of-maps-as-int][map1]...[mapN][number-of-palettes-as-int][palette1]...[paletteN]
+   * [checksum-as-int][offset-of-this-field-as-long]
+   * <p>
+   * <b>Blob Format</b>: [offset-of-blob-data-as-long][blob-length-in-bytes-as-int]
+   * <p>
+   * <b>Map Format</b>: [name-length-in-bytes][name][number-of-fields-as-int][field1]...[fieldN], where each field is [field-name][blob-number-as-int], in .rkm file order
+   * <p>
+   * <b>Palette Format</b>: [name-length-in-bytes][name][blob-number-as-int]
+   */
+  DIRECTORY("BDIR");
+
+  private final byte[] fieldName;
+
+  RkbField(String fieldName) {
+    Objects.requireNonNull(fieldName);
+    if (fieldName.getBytes(StandardCharsets.UTF_8).length != 4) {
+      throw new IllegalArgumentException("String 'fieldName' length must be exactly four (4) bytes");
+    }
+    this.fieldName = fieldName.getBytes(StandardCharsets.UTF_8);
+  }
+
+  public byte[] fieldName() {
+    return fieldName;
+  }
+
+  public static RkbField of(byte[] fieldNameByteArray) {
+    Objects.requireNonNull(fieldNameByteArray);
+    for (RkbField field : RkbField.values()) {
+      if (Arrays.equals(field.fieldName(), fieldNameByteArray)) {
+        return field;
+      }
+    }
+    return UNKNOWN;
+  }
+
+}
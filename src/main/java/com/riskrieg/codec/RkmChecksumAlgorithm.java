@@ -0,0 +1,62 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.Objects;
+
+/**
+ * The algorithms that can be used for the {@link RkmField#CHECKSUM} field, as declared by the {@link RkmField#CHECKSUM_ALGORITHM} field.
+ */
+public enum RkmChecksumAlgorithm {
+
+  /**
+   * A 64-byte SHA-512 digest. This is the algorithm used by files that do not declare one.
+   */
+  SHA_512("SHA-512", 64),
+
+  /**
+   * A 4-byte big-endian CRC-32C value. This is hardware-accelerated on most platforms and much cheaper than SHA-512, but only protects against accidental corruption.
+   */
+  CRC32C("CRC32C", 4);
+
+  private final String algorithmName;
+  private final int checksumLength;
+
+  RkmChecksumAlgorithm(String algorithmName, int checksumLength) {
+    this.algorithmName = algorithmName;
+    this.checksumLength = checksumLength;
+  }
+
+  /**
+   * @return the name of the algorithm as it is written in the {@link RkmField#CHECKSUM_ALGORITHM} field
+   */
+  public String algorithmName() {
+    return algorithmName;
+  }
+
+  public int checksumLength() {
+    return checksumLength;
+  }
+
+  /**
+   * @return the algorithm with the given name, or null if it is not supported
+   */
+  @Nullable
+  public static RkmChecksumAlgorithm of(@NonNull String algorithmName) {
+    Objects.requireNonNull(algorithmName);
+    for (RkmChecksumAlgorithm algorithm : RkmChecksumAlgorithm.values()) {
+      if (algorithm.algorithmName.equals(algorithmName)) {
+        return algorithm;
+      }
+    }
+    return null;
+  }
+
+}
@@ -14,6 +14,17 @@ import java.util.Objects;
 public enum RkmField {
 
   UNKNOWN("UNKN"),
+
+  /**
+   * The name of the algorithm used for the {@link #CHECKSUM} field, as given by {@link com.riskrieg.codec.RkmChecksumAlgorithm#algorithmName()}. This field is optional, and
+   * if present, it must be the first field after the file signature. Files without it use SHA-512.
+   * <p>
+   * <b>Field name</b>: CKAL
+   * <p>
+   * <b>Usage</b>: CKAL[length-in-bytes][algorithm-name-as-bytes]
+   */
+  CHECKSUM_ALGORITHM("CKAL"),
+
   /**
    * The code name of the map. Must have only lowercase alphanumeric characters with no spaces. Hyphens are allowed, but it cannot start and end with a hyphen, and cannot be only
    * hypens.
@@ -66,6 +77,18 @@ public enum RkmField {
    */
   EDGES("EDGS"),
 
+  /**
+   * A compact alternative to {@link #EDGES} that refers to each vertex by its zero-based position in the {@link #VERTICES} field instead of repeating its ID. Must come after
+   * the vertices field.
+   * <p>
+   * <b>Field name</b>: EDGI
+   * <p>
+   * <b>Usage</b>: EDGI[length-in-bytes][number-of-edges-as-int][edge1][edge2]...[edgeN]
+   * <p>
+   * <b>Edge Format</b>: [source-vertex-index-as-varint][target-vertex-index-as-varint], where each varint is unsigned LEB128
+   */
+  EDGES_INDEXED("EDGI"),
+
   /**
    * The PNG data that defines the base layer of the map image.
    * <p>
@@ -84,15 +107,58 @@ public enum RkmField {
    */
   MAP_IMAGE_TEXT("MITX"),
 
+  /**
+   * An alternative to {@link #MAP_IMAGE_BASE} that stores the pixels of the base layer directly, so that no image decompression is needed to load them.
+   * <p>
+   * <b>Field name</b>: MIBP
+   * <p>
+   * <b>Usage</b>: MIBP[length-in-bytes][pixel-format-as-byte][width-as-int][height-as-int][pixel-data]
+   * <p>
+   * <b>Pixel Formats</b>: 0 is [ARGB-pixel-as-int]... for each pixel, row by row. 1 is [number-of-colors-as-int][ARGB-color-as-int]...[run1][run2]...[runN], where each run
+   * is [run-length-as-varint][color-index-as-varint], and the runs cover every pixel row by row, continuing from one row to the next.
+   */
+  MAP_IMAGE_BASE_PIXELS("MIBP"),
+
+  /**
+   * An alternative to {@link #MAP_IMAGE_TEXT} that stores the pixels of the text layer directly, in the same way as {@link #MAP_IMAGE_BASE_PIXELS}.
+   * <p>
+   * <b>Field name</b>: MITP
+   * <p>
+   * <b>Usage</b>: MITP[length-in-bytes][pixel-format-as-byte][width-as-int][height-as-int][pixel-data]
+   */
+  MAP_IMAGE_TEXT_PIXELS("MITP"),
+
   /**
    * The file checksum that covers everything in the file from the very beginning all the way until the point the checksum is written. This is also considered an end-of-file
-   * marker.
+   * marker. The checksum is computed with the algorithm named by the {@link #CHECKSUM_ALGORITHM} field, or with SHA-512 if there is no such field.
    * <p>
    * <b>Field name</b>: CKSM
    * <p>
    * <b>Usage</b>: CKSM[length-in-bytes][checksum-data-as-bytes]
    */
-  CHECKSUM("CKSM");
+  CHECKSUM("CKSM"),
+
+  /**
+   * An optional table of contents that records the offset and length of every field in the file. If present, it is written directly after the checksum, and so is not covered
+   * by it. The last eight bytes of the field are the offset of the field itself, which lets readers find it by reading the end of the file.
+   * <p>
+   * <b>Field name</b>: FIDX
+   * <p>
+   * <b>Usage</b>: FIDX[length-in-bytes][number-of-entries-as-int][entry1][entry2]...[entryN][offset-of-this-field-as-long]
+   * <p>
+   * <b>Entry Format</b>: [field-name][offset-of-field-as-long][field-length-in-bytes-as-int]
+   */
+  FIELD_INDEX("FIDX"),
+
+  /**
+   * A wrapper around another field whose data is compressed with DEFLATE, in the zlib format. The wrapped field is decoded exactly as if it had been stored uncompressed in place
+   * of this field. The checksum covers the compressed data as it is stored. The checksum algorithm, checksum, field index and compressed fields cannot be wrapped.
+   * <p>
+   * <b>Field name</b>: DFLT
+   * <p>
+   * <b>Usage</b>: DFLT[length-in-bytes][wrapped-field-name][uncompressed-length-in-bytes-as-int][zlib-data]
+   */
+  DEFLATED("DFLT");
 
   private final byte[] fieldName;
 
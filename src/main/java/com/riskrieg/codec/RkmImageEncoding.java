@@ -0,0 +1,31 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+/**
+ * How the image layers of a map are stored.
+ */
+public enum RkmImageEncoding {
+
+  /**
+   * PNG data in the {@link RkmField#MAP_IMAGE_BASE} and {@link RkmField#MAP_IMAGE_TEXT} fields. This is the smallest, but the slowest to decode.
+   */
+  PNG,
+
+  /**
+   * Uncompressed ARGB pixels in the {@link RkmField#MAP_IMAGE_BASE_PIXELS} and {@link RkmField#MAP_IMAGE_TEXT_PIXELS} fields, which are copied into the image in bulk.
+   */
+  ARGB,
+
+  /**
+   * Run-length encoded palette indices in the {@link RkmField#MAP_IMAGE_BASE_PIXELS} and {@link RkmField#MAP_IMAGE_TEXT_PIXELS} fields. Map layers are mostly large areas of
+   * flat color, so this is usually far smaller than {@link #ARGB} while still decoding without any decompression.
+   */
+  INDEXED_RUN_LENGTH
+
+}
@@ -0,0 +1,117 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The offset and length of every field in an .rkm file, in file order, including fields that are not recognized. See {@link RkmField#FIELD_INDEX} for how an index is stored
+ * in a file.
+ */
+public final class RkmIndex {
+
+  private static final int ENTRY_LENGTH = 4 + 8 + 4;
+
+  private final List<Entry> entries;
+
+  public RkmIndex(@NonNull List<Entry> entries) {
+    this.entries = List.copyOf(Objects.requireNonNull(entries));
+  }
+
+  public List<Entry> entries() {
+    return entries;
+  }
+
+  /**
+   * @return the first entry for the given field, or null if the file does not contain it
+   */
+  @Nullable
+  public Entry find(@NonNull RkmField field) {
+    Objects.requireNonNull(field);
+    for (Entry entry : entries) {
+      if (entry.field() == field) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param indexFieldOffset the offset at which the {@link RkmField#FIELD_INDEX} field itself will be written
+   * @return the data of a {@link RkmField#FIELD_INDEX} field describing this index
+   */
+  public byte[] toFieldData(long indexFieldOffset) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + entries.size() * ENTRY_LENGTH + 8);
+    buffer.putInt(entries.size());
+    for (Entry entry : entries) {
+      buffer.put(entry.fieldName().getBytes(StandardCharsets.ISO_8859_1));
+      buffer.putLong(entry.offset());
+      buffer.putInt(entry.length());
+    }
+    buffer.putLong(indexFieldOffset);
+    return buffer.array();
+  }
+
+  /**
+   * @param data the data of a {@link RkmField#FIELD_INDEX} field
+   */
+  public static RkmIndex fromFieldData(@NonNull ByteBuffer data) {
+    Objects.requireNonNull(data);
+    int entryCount = data.getInt(0);
+    if (entryCount < 0 || data.limit() != 4 + (long) entryCount * ENTRY_LENGTH + 8) {
+      throw new IllegalArgumentException("field index length does not match its number of entries");
+    }
+    List<Entry> entries = new ArrayList<>(entryCount);
+    int index = 4;
+    for (int e = 0; e < entryCount; e++) {
+      byte[] fieldName = new byte[4];
+      data.get(index, fieldName);
+      entries.add(new Entry(fieldName, data.getLong(index + 4), data.getInt(index + 12)));
+      index += ENTRY_LENGTH;
+    }
+    return new RkmIndex(entries);
+  }
+
+  /**
+   * @param fieldName the four-byte field name, with each byte mapped to a single character so that unrecognized names are preserved exactly
+   * @param offset    the offset of the start of the field, which is where its name is
+   * @param length    the length of the field data in bytes
+   */
+  public record Entry(@NonNull String fieldName, long offset, int length) {
+
+    public Entry {
+      Objects.requireNonNull(fieldName);
+      if (fieldName.length() != 4) {
+        throw new IllegalArgumentException("String 'fieldName' length must be exactly four (4) characters");
+      }
+    }
+
+    public Entry(byte[] fieldName, long offset, int length) {
+      this(new String(fieldName, StandardCharsets.ISO_8859_1), offset, length);
+    }
+
+    public RkmField field() {
+      return RkmField.of(fieldName.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @return the offset of the field data, just past the field name and length
+     */
+    public long dataOffset() {
+      return offset + 4 + 4;
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The fields of a binary .rkp palette file, which uses the same [field-name][length-in-bytes][data] layout as an .rkm file. The file starts with the eight-byte signature
+ * {@code 83 52 4B 50 0D 0A 1A 0A} and ends with the {@link #CHECKSUM} field.
+ */
+public enum RkpField {
+
+  UNKNOWN("UNKN"),
+
+  /**
+   * The name of the palette.
+   * <p>
+   * <b>Field name</b>: PNAM
+   * <p>
+   * <b>Usage</b>: PNAM[length-in-bytes][string-as-bytes]
+   */
+  PALETTE_NAME("PNAM"),
+
+  /**
+   * The colors of the palette.
+   * <p>
+   * <b>Field name</b>: COLR
+   * <p>
+   * <b>Usage</b>: COLR[length-in-bytes][number-of-colors-as-int][color1][color2]...[colorN]
+   * <p>
+   * <b>Color Format</b>: [order-as-int][name-length-in-bytes][name][r-as-byte][g-as-byte][b-as-byte]
+   */
+  COLORS("COLR"),
+
+  /**
+   * The CRC32C checksum of everything in the file from the very beginning all the way until the point the checksum is written. This is also considered an end-of-file marker.
+   * <p>
+   * <b>Field name</b>: CKSM
+   * <p>
+   * <b>Usage</b>: CKSM[length-in-bytes][checksum-data-as-bytes]
+   */
+  CHECKSUM("CKSM");
+
+  private final byte[] fieldName;
+
+  RkpField(String fieldName) {
+    Objects.requireNonNull(fieldName);
+    if (fieldName.getBytes(StandardCharsets.UTF_8).length != 4) {
+      throw new IllegalArgumentException("String 'fieldName' length must be exactly four (4) bytes");
+    }
+    this.fieldName = fieldName.getBytes(StandardCharsets.UTF_8);
+  }
+
+  public byte[] fieldName() {
+    return fieldName;
+  }
+
+  public static RkpField of(byte[] fieldNameByteArray) {
+    Objects.requireNonNull(fieldNameByteArray);
+    for (RkpField field : RkpField.values()) {
+      if (Arrays.equals(field.fieldName(), fieldNameByteArray)) {
+        return field;
+      }
+    }
+    return UNKNOWN;
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.internal.concurrent.DefaultExecutor;
+import com.riskrieg.codec.internal.io.AsyncFiles;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs a {@link Decoder} without blocking the caller. The decoding itself, including any image decoding, runs on the executor. Failures, including the checked exceptions
+ * thrown by the decoder, complete the returned future exceptionally.
+ * <p>
+ * Decoders that handle paths themselves, namely {@link RkmDecoder}, {@link CachingRkmDecoder} and {@link RkbDecoder}, are given the path on the executor so that they keep
+ * their own file handling, such as memory mapping or the cache's file stamp check. For the other decoders, the file is read in full with an
+ * {@link java.nio.channels.AsynchronousFileChannel} before decoding, so a missing file fails the future with {@link java.nio.file.NoSuchFileException} rather than producing a
+ * null result.
+ */
+public final class AsyncDecoder<T> {
+
+  private final Decoder<T> decoder;
+  private final Executor executor;
+  private final boolean readsPaths;
+
+  /**
+   * Uses the default executor, which uses virtual threads when they are available.
+   */
+  public AsyncDecoder(@NonNull Decoder<T> decoder) {
+    this(decoder, DefaultExecutor.get());
+  }
+
+  public AsyncDecoder(@NonNull Decoder<T> decoder, @NonNull Executor executor) {
+    this.decoder = Objects.requireNonNull(decoder);
+    this.executor = Objects.requireNonNull(executor);
+    this.readsPaths = decoder instanceof RkmDecoder || decoder instanceof CachingRkmDecoder || decoder instanceof RkbDecoder;
+  }
+
+  public CompletableFuture<T> decode(@NonNull Path path) {
+    Objects.requireNonNull(path);
+    if (readsPaths) {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return decoder.decode(path);
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    }
+    return AsyncFiles.readAllBytes(path).thenApplyAsync(this::decodeUnchecked, executor);
+  }
+
+  public CompletableFuture<T> decode(@NonNull URL url) {
+    Objects.requireNonNull(url);
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return decoder.decode(url);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  public CompletableFuture<T> decode(@NonNull byte[] data) {
+    Objects.requireNonNull(data);
+    return CompletableFuture.supplyAsync(() -> decodeUnchecked(data), executor);
+  }
+
+  /**
+   * The stream is read on the executor, so the caller must not use it until the returned future is complete.
+   */
+  public CompletableFuture<T> decode(@NonNull InputStream inputStream) {
+    Objects.requireNonNull(inputStream);
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return decoder.decode(inputStream);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  private T decodeUnchecked(byte[] data) {
+    try {
+      return decoder.decode(data);
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+
+}
@@ -0,0 +1,252 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.palette.RkpPalette;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Decodes many .rkm and .rkp files at once across a bounded pool of worker threads. A file that fails to decode is recorded as a failure rather than aborting the rest of the
+ * batch.
+ */
+public final class BulkDecoder {
+
+  private final RkmDecoder mapDecoder;
+  private final RkpDecoder paletteDecoder;
+  private final int parallelism;
+
+  public BulkDecoder() {
+    this(new RkmDecoder(), new RkpDecoder(), Runtime.getRuntime().availableProcessors());
+  }
+
+  public BulkDecoder(int parallelism) {
+    this(new RkmDecoder(), new RkpDecoder(), parallelism);
+  }
+
+  public BulkDecoder(@NonNull RkmDecoder mapDecoder, @NonNull RkpDecoder paletteDecoder, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be greater than or equal to 1");
+    }
+    this.mapDecoder = Objects.requireNonNull(mapDecoder);
+    this.paletteDecoder = Objects.requireNonNull(paletteDecoder);
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Decodes every .rkm and .rkp file in the directory and its subdirectories. Files with any other extension are ignored.
+   */
+  public Result decodeDirectory(@NonNull Path directory) throws IOException, InterruptedException {
+    return decodeDirectory(directory, new Progress());
+  }
+
+  public Result decodeDirectory(@NonNull Path directory, @NonNull Progress progress) throws IOException, InterruptedException {
+    Objects.requireNonNull(directory);
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(directory)) {
+      paths = stream.filter(Files::isRegularFile).filter(path -> FileType.of(path) != null).sorted().toList();
+    }
+    return decode(paths, progress);
+  }
+
+  /**
+   * Decodes every file in the collection, based on its extension. Files with an extension other than .rkm or .rkp are reported as failures. A path that appears more than once
+   * is only decoded once.
+   */
+  public Result decode(@NonNull Collection<Path> paths) throws InterruptedException {
+    return decode(paths, new Progress());
+  }
+
+  /**
+   * @param progress updated as each file finishes, so it can be read from another thread while the batch is running
+   */
+  public Result decode(@NonNull Collection<Path> paths, @NonNull Progress progress) throws InterruptedException {
+    Objects.requireNonNull(paths);
+    Objects.requireNonNull(progress);
+    List<Path> files = List.copyOf(new LinkedHashSet<>(paths)); // Duplicates would otherwise overwrite each other in the result.
+    Object[] results = new Object[files.size()]; // Each slot is written by exactly one task, and read after all of them have finished.
+
+    List<Callable<Void>> tasks = new ArrayList<>(files.size());
+    for (int i = 0; i < files.size(); i++) {
+      final int index = i;
+      tasks.add(() -> {
+        results[index] = decodeOne(files.get(index), progress);
+        return null;
+      });
+    }
+
+    progress.start(files.size());
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, files.size())));
+    try {
+      executor.invokeAll(tasks); // Every failure is caught by decodeOne and recorded as that file's result.
+    } finally {
+      executor.shutdownNow();
+      progress.finish();
+    }
+
+    Map<Path, RkmMap> maps = new LinkedHashMap<>();
+    Map<Path, RkpPalette> palettes = new LinkedHashMap<>();
+    Map<Path, Throwable> failures = new LinkedHashMap<>();
+    for (int i = 0; i < files.size(); i++) {
+      if (results[i] instanceof RkmMap map) {
+        maps.put(files.get(i), map);
+      } else if (results[i] instanceof RkpPalette palette) {
+        palettes.put(files.get(i), palette);
+      } else if (results[i] instanceof Throwable throwable) {
+        failures.put(files.get(i), throwable);
+      }
+    }
+    return new Result(Collections.unmodifiableMap(maps), Collections.unmodifiableMap(palettes), Collections.unmodifiableMap(failures));
+  }
+
+  private Object decodeOne(Path path, Progress progress) {
+    try {
+      FileType type = FileType.of(path);
+      if (type == null) {
+        throw new IllegalArgumentException("unsupported file type: " + path);
+      }
+      long lengthInBytes = Files.size(path);
+      Object result = switch (type) {
+        case MAP -> mapDecoder.decode(path);
+        case PALETTE -> paletteDecoder.decode(path);
+      };
+      if (result == null) {
+        throw new IllegalStateException("file could not be decoded: " + path);
+      }
+      progress.succeeded(lengthInBytes);
+      return result;
+    } catch (Throwable t) { // Includes errors such as running out of memory on a large image layer, which should only fail this file.
+      progress.failed();
+      return t;
+    }
+  }
+
+  private enum FileType {
+    MAP, PALETTE;
+
+    private static FileType of(Path path) {
+      String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+      if (fileName.endsWith(".rkm")) {
+        return MAP;
+      } else if (fileName.endsWith(".rkp")) {
+        return PALETTE;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @param maps     the successfully decoded maps, in the order they were given
+   * @param palettes the successfully decoded palettes, in the order they were given
+   * @param failures the exception or error each failed file was rejected with, in the order they were given
+   */
+  public record Result(Map<Path, RkmMap> maps, Map<Path, RkpPalette> palettes, Map<Path, Throwable> failures) {
+
+  }
+
+  /**
+   * Live counters for a batch. All methods are safe to call from any thread while the batch is running.
+   */
+  public static final class Progress {
+
+    private final AtomicLong totalFiles = new AtomicLong();
+    private final AtomicLong succeededFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+    private volatile boolean started;
+    private volatile boolean finished;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    private void start(long totalFiles) {
+      this.totalFiles.set(totalFiles);
+      succeededFiles.set(0);
+      failedFiles.set(0);
+      decodedBytes.set(0);
+      this.finished = false;
+      this.startNanos = System.nanoTime();
+      this.started = true;
+    }
+
+    private void finish() {
+      this.endNanos = System.nanoTime();
+      this.finished = true;
+    }
+
+    private void succeeded(long lengthInBytes) {
+      succeededFiles.incrementAndGet();
+      decodedBytes.addAndGet(lengthInBytes);
+    }
+
+    private void failed() {
+      failedFiles.incrementAndGet();
+    }
+
+    public long totalFiles() {
+      return totalFiles.get();
+    }
+
+    public long completedFiles() {
+      return succeededFiles.get() + failedFiles.get();
+    }
+
+    public long succeededFiles() {
+      return succeededFiles.get();
+    }
+
+    public long failedFiles() {
+      return failedFiles.get();
+    }
+
+    /**
+     * @return the total size of the files that were decoded successfully
+     */
+    public long decodedBytes() {
+      return decodedBytes.get();
+    }
+
+    /**
+     * @return the time the batch has been running, or the time it took once it has finished
+     */
+    public long elapsedNanos() {
+      if (!started) {
+        return 0;
+      }
+      return (finished ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    public double filesPerSecond() {
+      long elapsed = elapsedNanos();
+      return elapsed == 0 ? 0 : completedFiles() * 1_000_000_000.0 / elapsed;
+    }
+
+    public double bytesPerSecond() {
+      long elapsed = elapsedNanos();
+      return elapsed == 0 ? 0 : decodedBytes() * 1_000_000_000.0 / elapsed;
+    }
+
+  }
+
+}
@@ -0,0 +1,353 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.map.RkmMap;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Wraps an {@link RkmDecoder} with a cache of decoded maps, keyed by the checksum stored in each file, so decoding the same map again is nearly free no matter where it is
+ * read from. For paths, the last-modified time and size of the file are remembered as well, so an unchanged file is not even opened. Otherwise, only the field headers are
+ * read to find the checksum before the cache is consulted.
+ * <p>
+ * The cache is bounded by the estimated memory used by the image layers of the cached maps, and evicts the least recently used maps first. When several threads ask for the
+ * same uncached map at once, it is only decoded by one of them and the rest wait for it.
+ * <p>
+ * Cached maps are shared between callers, so their image layers must not be modified. Checksums are only as strong as the checksum algorithm, so files that use
+ * {@link com.riskrieg.codec.RkmChecksumAlgorithm#CRC32C} are better served by the default SHA-512 if many different maps go through the same cache.
+ */
+public final class CachingRkmDecoder implements Decoder<RkmMap> {
+
+  // 8B: File signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
+  private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private final RkmDecoder decoder;
+  private final long maximumBytes;
+
+  private final Object lock = new Object();
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Iterates from least to most recently used.
+  private final Map<Key, CompletableFuture<RkmMap>> loading = new HashMap<>();
+  private final Map<Path, FileStamp> files = new HashMap<>();
+  private long estimatedBytes;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * @param maximumBytes the estimated memory, in bytes, that the image layers of the cached maps may use
+   */
+  public CachingRkmDecoder(long maximumBytes) {
+    this(new RkmDecoder(), maximumBytes);
+  }
+
+  /**
+   * @param maximumBytes the estimated memory, in bytes, that the image layers of the cached maps may use
+   */
+  public CachingRkmDecoder(@NonNull RkmDecoder decoder, long maximumBytes) {
+    if (maximumBytes < 0) {
+      throw new IllegalArgumentException("maximumBytes cannot be negative");
+    }
+    this.decoder = Objects.requireNonNull(decoder);
+    this.maximumBytes = maximumBytes;
+  }
+
+  @Override
+  public RkmMap decode(Path path) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(path);
+    Path file = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    FileStamp stamp;
+    synchronized (lock) {
+      stamp = files.get(file);
+    }
+    if (stamp == null || !stamp.matches(attributes)) {
+      stamp = new FileStamp(attributes.lastModifiedTime(), attributes.size(), readKey(file));
+    }
+    RkmMap map = find(stamp.key());
+    if (map == null) {
+      byte[] data = Files.readAllBytes(file); // The key is taken from the exact bytes that are decoded, in case the file changed after it was first read.
+      stamp = new FileStamp(attributes.lastModifiedTime(), attributes.size(), readKey(ByteBuffer.wrap(data)));
+      map = load(stamp.key(), () -> decoder.decode(data));
+    }
+    synchronized (lock) {
+      if (entries.containsKey(stamp.key())) {
+        files.put(file, stamp);
+      }
+    }
+    return map;
+  }
+
+  @Override
+  public RkmMap decode(URL url) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(url);
+    try (InputStream input = url.openStream()) {
+      return decode(input.readAllBytes());
+    }
+  }
+
+  @Override
+  public RkmMap decode(byte[] data) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(data);
+    Key key = readKey(ByteBuffer.wrap(data));
+    RkmMap map = find(key);
+    return map != null ? map : load(key, () -> decoder.decode(data));
+  }
+
+  @Override
+  public RkmMap decode(InputStream inputStream) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(inputStream);
+    return decode(inputStream.readAllBytes());
+  }
+
+  /**
+   * Removes every map from the cache. Maps that are being decoded at the time are still cached once they finish.
+   */
+  public void invalidateAll() {
+    synchronized (lock) {
+      entries.clear();
+      files.clear();
+      estimatedBytes = 0;
+    }
+  }
+
+  public Stats stats() {
+    synchronized (lock) {
+      return new Stats(hitCount, missCount, evictionCount, entries.size(), estimatedBytes);
+    }
+  }
+
+  private RkmMap find(Key key) {
+    synchronized (lock) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        hitCount++;
+        return entry.map();
+      }
+      return null;
+    }
+  }
+
+  private RkmMap load(Key key, Loader loader) throws IOException, NoSuchAlgorithmException {
+    CompletableFuture<RkmMap> future;
+    CompletableFuture<RkmMap> loaded = new CompletableFuture<>();
+    synchronized (lock) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        hitCount++;
+        return entry.map();
+      }
+      future = loading.get(key);
+      if (future != null) {
+        hitCount++; // Another thread is already decoding it.
+      } else {
+        missCount++;
+        loading.put(key, loaded);
+      }
+    }
+    if (future != null) {
+      return await(future);
+    }
+
+    // Whatever happens, the future is completed and removed, or every other caller waiting for this key would block forever.
+    try {
+      RkmMap map = loader.load();
+      long mapBytes = estimateBytes(map);
+      synchronized (lock) {
+        Entry entry = new Entry(map, mapBytes);
+        entries.put(key, entry);
+        estimatedBytes += entry.estimatedBytes();
+        evict();
+        loading.remove(key, loaded);
+      }
+      loaded.complete(map);
+      return map;
+    } catch (Throwable t) {
+      synchronized (lock) {
+        loading.remove(key, loaded);
+      }
+      loaded.completeExceptionally(t);
+      throw t;
+    }
+  }
+
+  private RkmMap await(CompletableFuture<RkmMap> future) throws IOException, NoSuchAlgorithmException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException exception) {
+        throw exception;
+      } else if (cause instanceof NoSuchAlgorithmException exception) {
+        throw exception;
+      } else if (cause instanceof RuntimeException exception) {
+        throw exception;
+      } else if (cause instanceof Error error) {
+        throw error;
+      }
+      throw e;
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+    while (estimatedBytes > maximumBytes && iterator.hasNext()) {
+      Map.Entry<Key, Entry> eldest = iterator.next();
+      iterator.remove();
+      estimatedBytes -= eldest.getValue().estimatedBytes();
+      evictionCount++;
+      files.values().removeIf(stamp -> stamp.key().equals(eldest.getKey()));
+    }
+  }
+
+  private static long estimateBytes(RkmMap map) {
+    return estimateBytes(map.baseLayer()) + estimateBytes(map.textLayer());
+  }
+
+  private static long estimateBytes(BufferedImage image) {
+    DataBuffer buffer = image.getRaster().getDataBuffer();
+    return (long) buffer.getNumBanks() * buffer.getSize() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+  }
+
+  /**
+   * Finds the checksum by skipping from one field header to the next, without reading any field data but the checksum itself.
+   */
+  private Key readKey(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(signature.length);
+      readFully(channel, header, 0);
+      if (!header.flip().equals(ByteBuffer.wrap(signature))) {
+        throw new IllegalStateException("file signature is invalid");
+      }
+      long position = signature.length;
+      while (true) {
+        header.clear();
+        readFully(channel, header, position);
+        byte[] fieldName = new byte[4];
+        header.get(0, fieldName);
+        int length = header.getInt(4);
+        if (length < 1) {
+          throw new IllegalArgumentException("field length cannot be negative or zero");
+        }
+        if (RkmField.of(fieldName) == RkmField.CHECKSUM) {
+          ByteBuffer checksum = ByteBuffer.allocate(length);
+          readFully(channel, checksum, position + 4 + 4);
+          return new Key(checksum.array(), position);
+        }
+        position += 4 + 4 + (long) length;
+      }
+    }
+  }
+
+  private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+    }
+  }
+
+  private Key readKey(ByteBuffer data) {
+    if (data.limit() < signature.length || !data.slice(0, signature.length).equals(ByteBuffer.wrap(signature))) {
+      throw new IllegalStateException("file signature is invalid");
+    }
+    int position = signature.length;
+    while (position <= data.limit() - 4 - 4) {
+      byte[] fieldName = new byte[4];
+      data.get(position, fieldName);
+      int length = data.getInt(position + 4);
+      if (length < 1) {
+        throw new IllegalArgumentException("field length cannot be negative or zero");
+      } else if (length > data.limit() - position - 4 - 4) {
+        break;
+      }
+      if (RkmField.of(fieldName) == RkmField.CHECKSUM) {
+        byte[] checksum = new byte[length];
+        data.get(position + 4 + 4, checksum);
+        return new Key(checksum, position);
+      }
+      position += 4 + 4 + length;
+    }
+    throw new IllegalStateException("unexpected end of file");
+  }
+
+  /**
+   * @param hitCount       the number of decodes that were served from the cache, including those that waited for another thread to decode the same map
+   * @param missCount      the number of decodes that had to decode the map
+   * @param evictionCount  the number of maps removed to stay within the size bound
+   * @param size           the number of maps currently cached
+   * @param estimatedBytes the estimated memory used by the image layers of the cached maps
+   */
+  public record Stats(long hitCount, long missCount, long evictionCount, int size, long estimatedBytes) {
+
+    public double hitRate() {
+      long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+  }
+
+  /**
+   * @param checksum       the data of the checksum field
+   * @param checksumOffset the offset of the checksum field, which is also the number of bytes it covers
+   */
+  private record Key(byte[] checksum, long checksumOffset) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key key && checksumOffset == key.checksumOffset && Arrays.equals(checksum, key.checksum);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(checksum) + Long.hashCode(checksumOffset);
+    }
+
+  }
+
+  private record Entry(RkmMap map, long estimatedBytes) {
+
+  }
+
+  private record FileStamp(FileTime lastModifiedTime, long size, Key key) {
+
+    private boolean matches(BasicFileAttributes attributes) {
+      return lastModifiedTime.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+
+  }
+
+  @FunctionalInterface
+  private interface Loader {
+
+    RkmMap load() throws IOException, NoSuchAlgorithmException;
+
+  }
+
+}
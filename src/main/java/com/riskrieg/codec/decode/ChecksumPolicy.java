@@ -0,0 +1,31 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+/**
+ * How the checksum of an .rkm file is treated while decoding it.
+ */
+public enum ChecksumPolicy {
+
+  /**
+   * The checksum is computed while the file is read, and decoding fails if it does not match.
+   */
+  VERIFY,
+
+  /**
+   * The decoded map is returned without waiting for the checksum, which is computed afterwards on the executor. A mismatch is reported to the checksum failure handler
+   * instead of failing the decode. The file data is kept in memory until the checksum has been computed.
+   */
+  VERIFY_IN_BACKGROUND,
+
+  /**
+   * The checksum is not computed at all. Only use this for files from a trusted source, such as an internal cache.
+   */
+  SKIP
+
+}
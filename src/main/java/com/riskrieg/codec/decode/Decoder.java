@@ -8,11 +8,14 @@
 package com.riskrieg.codec.decode;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 
-public sealed interface Decoder<T> permits RkmDecoder, RkpDecoder {
+public sealed interface Decoder<T> permits RkmDecoder, CachingRkmDecoder, RkpDecoder, RkpBinaryDecoder, RkbDecoder {
 
   T decode(Path path) throws IOException, NoSuchAlgorithmException;
 
@@ -20,4 +23,10 @@ public sealed interface Decoder<T> permits RkmDecoder, RkpDecoder {
 
   T decode(byte[] data) throws IOException, NoSuchAlgorithmException;
 
+  T decode(InputStream inputStream) throws IOException, NoSuchAlgorithmException;
+
+  default T decode(ReadableByteChannel channel) throws IOException, NoSuchAlgorithmException {
+    return decode(Channels.newInputStream(channel));
+  }
+
 }
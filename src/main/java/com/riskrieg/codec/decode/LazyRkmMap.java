@@ -0,0 +1,107 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.map.Territory;
+import com.riskrieg.map.territory.Border;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A decoded .rkm map whose metadata and graph are available immediately, but whose image layers are only decoded the first time they are accessed. Whether the checksum of the
+ * file has been verified by the time an instance is returned depends on the decoder's {@link ChecksumPolicy}: it has with {@link ChecksumPolicy#VERIFY}, may still be in
+ * progress with {@link ChecksumPolicy#VERIFY_IN_BACKGROUND}, and never is with {@link ChecksumPolicy#SKIP}.
+ */
+public final class LazyRkmMap {
+
+  private final String codename;
+  private final String displayName;
+  private final String author;
+  private final Set<Territory> vertices;
+  private final Set<Border> edges;
+  private final LazyLayer baseLayer;
+  private final LazyLayer textLayer;
+
+  LazyRkmMap(String codename, String displayName, String author, Set<Territory> vertices, Set<Border> edges, LayerDecoder baseLayerDecoder, LayerDecoder textLayerDecoder) {
+    this.codename = Objects.requireNonNull(codename);
+    this.displayName = Objects.requireNonNull(displayName);
+    this.author = Objects.requireNonNull(author);
+    this.vertices = Objects.requireNonNull(vertices);
+    this.edges = Objects.requireNonNull(edges);
+    this.baseLayer = new LazyLayer(Objects.requireNonNull(baseLayerDecoder));
+    this.textLayer = new LazyLayer(Objects.requireNonNull(textLayerDecoder));
+  }
+
+  public String codename() {
+    return codename;
+  }
+
+  public String displayName() {
+    return displayName;
+  }
+
+  public String author() {
+    return author;
+  }
+
+  public Set<Territory> vertices() {
+    return vertices;
+  }
+
+  public Set<Border> edges() {
+    return edges;
+  }
+
+  public BufferedImage baseLayer() throws IOException {
+    return baseLayer.get();
+  }
+
+  public BufferedImage textLayer() throws IOException {
+    return textLayer.get();
+  }
+
+  public RkmMap toRkmMap() throws IOException {
+    return new RkmMap(codename, displayName, author, vertices, edges, baseLayer(), textLayer());
+  }
+
+  @FunctionalInterface
+  interface LayerDecoder {
+
+    BufferedImage decode() throws IOException;
+
+  }
+
+  private static final class LazyLayer {
+
+    private LayerDecoder decoder;
+    private BufferedImage image;
+    private boolean decoded;
+
+    private LazyLayer(LayerDecoder decoder) {
+      this.decoder = decoder;
+    }
+
+    private synchronized BufferedImage get() throws IOException {
+      if (!decoded) {
+        BufferedImage result = decoder.decode();
+        if (result == null) { // The decoder is kept, so the next call fails the same way.
+          throw new IllegalStateException("image layer could not be decoded");
+        }
+        image = result;
+        decoded = true;
+        decoder = null; // Lets the encoded image data be garbage collected.
+      }
+      return image;
+    }
+
+  }
+
+}
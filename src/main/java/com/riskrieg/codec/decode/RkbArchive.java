@@ -0,0 +1,308 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkbField;
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.palette.RkpPalette;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * An opened .rkb bundle, whose maps and palettes are only decoded when they are asked for. Only the central directory is read up front. See {@link RkbField} for the format.
+ * <p>
+ * By default, every map decodes its own image layers. When layer sharing is enabled through {@link RkbDecoder#RkbDecoder(RkmDecoder, boolean)}, image layers stored in the same
+ * blob are only decoded once, so maps decoded from the same bundle may share {@link BufferedImage} instances, and a layer must be copied before it is drawn on.
+ */
+public final class RkbArchive {
+
+  // 8B: Map file signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
+  private static final byte[] mapSignature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private static final int SIGNATURE_LENGTH = 8;
+  private static final int MINIMUM_DIRECTORY_LENGTH = 4 + 4 + 4 + 4 + 8;
+
+  private final ByteBuffer file;
+  private final RkmDecoder mapDecoder;
+  private final RkpBinaryDecoder paletteDecoder;
+  private final boolean shareLayers;
+  private final List<ByteBuffer> blobs;
+  private final Map<String, List<FieldReference>> maps;
+  private final Map<String, Integer> palettes;
+  private final Map<LayerKey, SoftReference<BufferedImage>> layers = new HashMap<>();
+
+  RkbArchive(ByteBuffer file, byte[] signature, RkmDecoder mapDecoder, RkpBinaryDecoder paletteDecoder, boolean shareLayers) {
+    this.file = file.slice();
+    this.mapDecoder = Objects.requireNonNull(mapDecoder);
+    this.paletteDecoder = Objects.requireNonNull(paletteDecoder);
+    this.shareLayers = shareLayers;
+
+    if (this.file.limit() < SIGNATURE_LENGTH + 4 + 4 + MINIMUM_DIRECTORY_LENGTH) {
+      throw new IllegalStateException("file length is too short to be a valid .rkb file");
+    } else if (!this.file.slice(0, SIGNATURE_LENGTH).equals(ByteBuffer.wrap(signature))) {
+      throw new IllegalStateException("file signature is invalid");
+    }
+    ByteBuffer directory = readDirectory();
+    try {
+      this.blobs = readBlobs(directory);
+      this.maps = readMaps(directory);
+      this.palettes = readPalettes(directory);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalStateException("bundle directory is truncated");
+    }
+    if (directory.remaining() != 4 + 8) {
+      throw new IllegalStateException("bundle directory length does not match its contents");
+    }
+  }
+
+  /**
+   * @return the names of the maps in the bundle, in the order they were added
+   */
+  public Set<String> mapNames() {
+    return Collections.unmodifiableSet(maps.keySet());
+  }
+
+  /**
+   * @return the names of the palettes in the bundle, in the order they were added
+   */
+  public Set<String> paletteNames() {
+    return Collections.unmodifiableSet(palettes.keySet());
+  }
+
+  /**
+   * @return the decoded map, or null if the bundle does not contain a map with the given name
+   */
+  @Nullable
+  public RkmMap map(@NonNull String name) throws IOException, NoSuchAlgorithmException {
+    LazyRkmMap map = lazyMap(name);
+    return map == null ? null : map.toRkmMap();
+  }
+
+  /**
+   * Decodes everything except the image layers, which are only decoded the first time they are accessed, unless layers are shared and another map in the bundle has already
+   * decoded the same layer.
+   *
+   * @return the decoded map, or null if the bundle does not contain a map with the given name
+   */
+  @Nullable
+  public LazyRkmMap lazyMap(@NonNull String name) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(name);
+    List<FieldReference> fields = maps.get(name);
+    if (fields == null) {
+      return null;
+    }
+    LazyRkmMap map = mapDecoder.decodeLazy(assemble(fields));
+    if (!shareLayers) {
+      return map;
+    }
+    LayerKey baseLayer = layerKey(fields, RkmField.MAP_IMAGE_BASE, RkmField.MAP_IMAGE_BASE_PIXELS);
+    LayerKey textLayer = layerKey(fields, RkmField.MAP_IMAGE_TEXT, RkmField.MAP_IMAGE_TEXT_PIXELS);
+    return new LazyRkmMap(map.codename(), map.displayName(), map.author(), map.vertices(), map.edges(),
+        () -> sharedLayer(baseLayer, map::baseLayer), () -> sharedLayer(textLayer, map::textLayer));
+  }
+
+  /**
+   * @return the map exactly as it would have been encoded as a standalone .rkm file, or null if the bundle does not contain a map with the given name
+   */
+  @Nullable
+  public byte[] mapData(@NonNull String name) {
+    Objects.requireNonNull(name);
+    List<FieldReference> fields = maps.get(name);
+    if (fields == null) {
+      return null;
+    }
+    List<ByteBuffer> parts = assemble(fields);
+    ByteBuffer result = ByteBuffer.allocate(Math.toIntExact(parts.stream().mapToLong(ByteBuffer::remaining).sum()));
+    for (ByteBuffer part : parts) {
+      result.put(part.duplicate());
+    }
+    return result.array();
+  }
+
+  /**
+   * @return the decoded palette, or null if the bundle does not contain a palette with the given name
+   */
+  @Nullable
+  public RkpPalette palette(@NonNull String name) {
+    Objects.requireNonNull(name);
+    Integer blob = palettes.get(name);
+    if (blob == null) {
+      return null;
+    }
+    ByteBuffer data = blobs.get(blob).duplicate();
+    byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+    return paletteDecoder.decode(bytes);
+  }
+
+  /**
+   * Puts the signature and fields of a map back together, without copying any field data.
+   */
+  private List<ByteBuffer> assemble(List<FieldReference> fields) {
+    List<ByteBuffer> parts = new ArrayList<>(1 + fields.size() * 2);
+    parts.add(ByteBuffer.wrap(mapSignature));
+    for (FieldReference field : fields) {
+      ByteBuffer data = blobs.get(field.blob());
+      parts.add(ByteBuffer.allocate(4 + 4).put(field.fieldName()).putInt(data.remaining()).flip());
+      parts.add(data.duplicate());
+    }
+    return parts;
+  }
+
+  @Nullable
+  private LayerKey layerKey(List<FieldReference> fields, RkmField... layerFields) {
+    for (FieldReference reference : fields) {
+      RkmField field = RkmField.of(reference.fieldName());
+      for (RkmField layerField : layerFields) {
+        if (field == layerField) {
+          return new LayerKey(field, reference.blob());
+        }
+      }
+    }
+    return null; // Stored some other way, such as compressed, so it is not shared.
+  }
+
+  private BufferedImage sharedLayer(@Nullable LayerKey key, LazyRkmMap.LayerDecoder decoder) throws IOException {
+    if (key == null) {
+      return decoder.decode();
+    }
+    synchronized (layers) {
+      SoftReference<BufferedImage> cached = layers.get(key);
+      BufferedImage image = cached == null ? null : cached.get();
+      if (image != null) {
+        return image;
+      }
+    }
+    BufferedImage image = decoder.decode(); // Decoded outside the lock, so two threads may rarely decode the same layer, which is harmless.
+    synchronized (layers) {
+      layers.put(key, new SoftReference<>(image));
+    }
+    return image;
+  }
+
+  private ByteBuffer readDirectory() {
+    long offset = file.getLong(file.limit() - 8);
+    if (offset < SIGNATURE_LENGTH || offset > file.limit() - 4 - 4 - MINIMUM_DIRECTORY_LENGTH) {
+      throw new IllegalStateException("bundle directory offset is out of bounds");
+    }
+    byte[] fieldName = new byte[4];
+    file.get((int) offset, fieldName);
+    int length = file.getInt((int) offset + 4);
+    if (RkbField.of(fieldName) != RkbField.DIRECTORY) {
+      throw new IllegalStateException("bundle directory not found");
+    } else if (length != file.limit() - offset - 4 - 4) {
+      throw new IllegalStateException("bundle directory must be the last field in the file");
+    }
+    ByteBuffer directory = file.slice((int) offset + 4 + 4, length);
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(directory.slice(0, length - 4 - 8));
+    if ((int) checksum.getValue() != directory.getInt(length - 4 - 8)) {
+      throw new IllegalStateException("bundle directory checksum does not match");
+    }
+    return directory;
+  }
+
+  private List<ByteBuffer> readBlobs(ByteBuffer directory) {
+    int count = readCount(directory, 8 + 4);
+    long end = file.limit() - directory.limit() - 4 - 4; // Blobs all come before the directory.
+    List<ByteBuffer> result = new ArrayList<>(count);
+    for (int b = 0; b < count; b++) {
+      long offset = directory.getLong();
+      int length = directory.getInt();
+      if (offset < SIGNATURE_LENGTH + 4 + 4 || length < 1 || offset > end - length) {
+        throw new IllegalStateException("blob " + b + " is out of bounds");
+      }
+      result.add(file.slice((int) offset, length));
+    }
+    return List.copyOf(result);
+  }
+
+  private Map<String, List<FieldReference>> readMaps(ByteBuffer directory) {
+    int count = readCount(directory, 4 + 4);
+    Map<String, List<FieldReference>> result = new LinkedHashMap<>();
+    for (int m = 0; m < count; m++) {
+      String name = readName(directory);
+      int fieldCount = readCount(directory, 4 + 4);
+      List<FieldReference> fields = new ArrayList<>(fieldCount);
+      for (int f = 0; f < fieldCount; f++) {
+        byte[] fieldName = new byte[4];
+        directory.get(fieldName);
+        fields.add(new FieldReference(fieldName, readBlobNumber(directory)));
+      }
+      if (result.put(name, List.copyOf(fields)) != null) {
+        throw new IllegalStateException("duplicate map name: " + name);
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Integer> readPalettes(ByteBuffer directory) {
+    int count = readCount(directory, 4 + 4);
+    Map<String, Integer> result = new LinkedHashMap<>();
+    for (int p = 0; p < count; p++) {
+      String name = readName(directory);
+      if (result.put(name, readBlobNumber(directory)) != null) {
+        throw new IllegalStateException("duplicate palette name: " + name);
+      }
+    }
+    return result;
+  }
+
+  private int readCount(ByteBuffer directory, int minimumEntryLength) {
+    int count = directory.getInt();
+    if (count < 0 || (long) count * minimumEntryLength > directory.remaining()) {
+      throw new IllegalStateException("bundle directory count is out of bounds");
+    }
+    return count;
+  }
+
+  private String readName(ByteBuffer directory) {
+    int length = directory.getInt();
+    if (length < 0 || length > directory.remaining()) {
+      throw new IllegalStateException("bundle directory name length is out of bounds");
+    }
+    byte[] name = new byte[length];
+    directory.get(name);
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  private int readBlobNumber(ByteBuffer directory) {
+    int blob = directory.getInt();
+    if (blob < 0 || blob >= blobs.size()) {
+      throw new IllegalStateException("blob number " + blob + " is out of bounds");
+    }
+    return blob;
+  }
+
+  private record FieldReference(byte[] fieldName, int blob) {
+
+  }
+
+  private record LayerKey(RkmField field, int blob) {
+
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkbField;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Opens bundles in the .rkb format described by {@link RkbField}. Opening a bundle only reads its central directory; maps and palettes are decoded on demand through the
+ * returned {@link RkbArchive}, using the given {@link RkmDecoder} for maps.
+ */
+public final class RkbDecoder implements Decoder<RkbArchive> {
+
+  // 8B: File signature. HEX: 83 52 4B 42 0D 0A 1A 0A -- \131 R K B \r \n \032 \n
+  private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x42, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private final RkmDecoder mapDecoder;
+  private final RkpBinaryDecoder paletteDecoder = new RkpBinaryDecoder();
+  private final boolean shareLayers;
+
+  public RkbDecoder() {
+    this(new RkmDecoder());
+  }
+
+  public RkbDecoder(RkmDecoder mapDecoder) {
+    this(mapDecoder, false);
+  }
+
+  /**
+   * @param shareLayers whether maps decoded from the same bundle should share the image layers they have in common, rather than each decoding its own. Shared layers are the
+   *                    same {@link java.awt.image.BufferedImage} instances, so drawing on one changes it for every map that uses it.
+   */
+  public RkbDecoder(RkmDecoder mapDecoder, boolean shareLayers) {
+    this.mapDecoder = Objects.requireNonNull(mapDecoder);
+    this.shareLayers = shareLayers;
+  }
+
+  /**
+   * Opens the bundle by memory-mapping it, so only the parts of the file that are actually decoded are read into memory.
+   */
+  @Override
+  public RkbArchive decode(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("file is too large to be memory-mapped");
+      }
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return new RkbArchive(buffer, signature, mapDecoder, paletteDecoder, shareLayers);
+    }
+  }
+
+  @Override
+  public RkbArchive decode(URL url) throws IOException {
+    Objects.requireNonNull(url);
+    try (InputStream input = url.openStream()) {
+      return decode(input.readAllBytes());
+    }
+  }
+
+  /**
+   * Opens the bundle directly from the given array, so it must not be modified while the returned archive is in use.
+   */
+  @Override
+  public RkbArchive decode(byte[] data) {
+    Objects.requireNonNull(data);
+    return new RkbArchive(ByteBuffer.wrap(data), signature, mapDecoder, paletteDecoder, shareLayers);
+  }
+
+  @Override
+  public RkbArchive decode(InputStream inputStream) throws IOException {
+    Objects.requireNonNull(inputStream);
+    return decode(inputStream.readAllBytes());
+  }
+
+}
@@ -7,28 +7,47 @@
 
 package com.riskrieg.codec.decode;
 
+import com.riskrieg.codec.RkmChecksumAlgorithm;
 import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.internal.concurrent.DefaultExecutor;
+import com.riskrieg.codec.internal.image.EncodedImages;
+import com.riskrieg.codec.internal.image.ImageReading;
+import com.riskrieg.codec.internal.image.PixelImages;
+import com.riskrieg.codec.internal.instrument.Instrumentation;
+import com.riskrieg.codec.internal.instrument.Instrumentation.MapTimer;
+import com.riskrieg.codec.internal.io.ByteBufferImageInputStream;
+import com.riskrieg.codec.internal.io.Varints;
 import com.riskrieg.map.RkmMap;
 import com.riskrieg.map.Territory;
 import com.riskrieg.map.territory.Border;
 import com.riskrieg.map.territory.Nucleus;
 import com.riskrieg.map.territory.TerritoryIdentity;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import javax.imageio.ImageIO;
 
 public final class RkmDecoder implements Decoder<RkmMap> {
@@ -36,167 +55,405 @@ public final class RkmDecoder implements Decoder<RkmMap> {
   // 8B: File signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
   private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
 
+  private final RkmDecoderOptions options;
+  private final Instrumentation instrumentation;
+
+  public RkmDecoder() {
+    this(RkmDecoderOptions.defaults());
+  }
+
+  public RkmDecoder(RkmDecoderOptions options) {
+    this.options = Objects.requireNonNull(options);
+    this.instrumentation = new Instrumentation(options.listener());
+  }
+
   @Override
   public RkmMap decode(Path path) throws IOException, NoSuchAlgorithmException {
     Objects.requireNonNull(path);
-    final ByteArrayInputStream input = new ByteArrayInputStream(Files.readAllBytes(path));
-    final long lengthInBytes = path.toFile().length();
-    RkmMap result = decodeInternal(input, lengthInBytes);
-    input.close();
-    return result;
+    try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+      return decodeInternal(RkmFieldReader.of(input, Files.size(path), options.checksumPolicy()));
+    }
+  }
+
+  /**
+   * Decodes the file by memory-mapping it rather than reading it through a stream. Field data is parsed directly from the mapped buffer without being copied, which avoids
+   * allocating a short-lived array for every field.
+   */
+  public RkmMap decodeMapped(Path path) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("file is too large to be memory-mapped");
+      }
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return decodeInternal(RkmFieldReader.of(buffer, options.checksumPolicy()));
+    }
   }
 
   @Override
   public RkmMap decode(URL url) throws IOException, NoSuchAlgorithmException {
     Objects.requireNonNull(url);
-    try (InputStream inputStream = url.openStream()) {
-      final byte[] fileData = inputStream.readAllBytes();
-      final ByteArrayInputStream input = new ByteArrayInputStream(fileData);
-      final long lengthInBytes = fileData.length;
-      RkmMap result = decodeInternal(input, lengthInBytes);
-      input.close();
-      return result;
+    try (InputStream input = new BufferedInputStream(url.openStream())) {
+      return decodeInternal(RkmFieldReader.of(input, RkmFieldReader.UNKNOWN_LENGTH, options.checksumPolicy()));
     }
   }
 
   @Override
   public RkmMap decode(byte[] data) throws IOException, NoSuchAlgorithmException {
     Objects.requireNonNull(data);
-    final ByteArrayInputStream input = new ByteArrayInputStream(data);
-    final long lengthInBytes = data.length;
-    RkmMap result = decodeInternal(input, lengthInBytes);
-    input.close();
-    return result;
+    return decodeInternal(RkmFieldReader.of(ByteBuffer.wrap(data), options.checksumPolicy()));
   }
 
-  private RkmMap decodeInternal(ByteArrayInputStream input, long lengthInBytes) throws IOException, NoSuchAlgorithmException {
-    if (lengthInBytes < signature.length + 4 + 4 + 64) { // Check length first before reading
-      throw new IllegalStateException("file length is too short to be a valid .rkm file");
-    }
-    if (!checkSignature(input)) {
-      throw new IllegalStateException("file signature is invalid");
+  @Override
+  public RkmMap decode(InputStream inputStream) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(inputStream);
+    return decodeInternal(RkmFieldReader.of(inputStream, RkmFieldReader.UNKNOWN_LENGTH, options.checksumPolicy()));
+  }
+
+  /**
+   * Decodes everything except the image layers, which are only decoded the first time they are accessed. The file is memory-mapped, so the encoded image data is not read
+   * into memory until then either.
+   */
+  public LazyRkmMap decodeLazy(Path path) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(path);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("file is too large to be memory-mapped");
+      }
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return decodeLazyInternal(RkmFieldReader.of(buffer, options.checksumPolicy()));
     }
-    ByteArrayOutputStream checksumBuilder = new ByteArrayOutputStream(); // Used to validate the checksum.
-    checksumBuilder.write(readSignature(input));
+  }
 
-    RkmMapBuilder builder = new RkmMapBuilder();
+  /**
+   * Decodes everything except the image layers, which are only decoded the first time they are accessed. The encoded image data is read directly from the given array, so it
+   * must not be modified until both image layers have been accessed.
+   */
+  public LazyRkmMap decodeLazy(byte[] data) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(data);
+    return decodeLazyInternal(RkmFieldReader.of(ByteBuffer.wrap(data), options.checksumPolicy()));
+  }
 
-    boolean eof = false;
-    while (!eof) {
-      byte[] fieldNameByteArray = readFieldName(input);
-      byte[] fieldLengthByteArray = readFieldLength(input);
+  /**
+   * Decodes everything except the image layers, which are only decoded the first time they are accessed. The encoded image data is kept in memory until then.
+   */
+  public LazyRkmMap decodeLazy(InputStream inputStream) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(inputStream);
+    return decodeLazyInternal(RkmFieldReader.of(inputStream, RkmFieldReader.UNKNOWN_LENGTH, options.checksumPolicy()));
+  }
 
-      int fieldLength = ByteBuffer.wrap(fieldLengthByteArray).getInt();
-      long remainingBytes = lengthInBytes - checksumBuilder.size() - fieldNameByteArray.length - fieldLengthByteArray.length;
+  /**
+   * Decodes a file whose bytes are split across the given buffers, deferring the image layers as {@link #decodeLazy(byte[])} does.
+   */
+  LazyRkmMap decodeLazy(List<ByteBuffer> parts) throws IOException, NoSuchAlgorithmException {
+    return decodeLazyInternal(RkmFieldReader.of(parts, options.checksumPolicy()));
+  }
 
-      if (fieldLength < 1) {
-        throw new IllegalArgumentException("field length cannot be negative or zero");
-      } else if (fieldLength > remainingBytes) {
-        throw new IllegalArgumentException("field length is longer than the remaining bytes in the file");
-      }
+  private RkmMap decodeInternal(RkmFieldReader reader) throws IOException, NoSuchAlgorithmException {
+    MapTimer timer = instrumentation.beginMapDecode();
+    try {
+      RkmMapBuilder builder = new RkmMapBuilder();
+      decodeFields(reader, builder, true);
+      RkmMap map = builder.build();
+      timer.end(reader.position());
+      return map;
+    } catch (Throwable t) { // Failed loads are the ones most worth seeing, so they are recorded too.
+      timer.fail(reader.position(), t);
+      throw t;
+    }
+  }
 
-      byte[] fieldDataByteArray = readFieldData(fieldLength, input);
+  private LazyRkmMap decodeLazyInternal(RkmFieldReader reader) throws IOException, NoSuchAlgorithmException {
+    MapTimer timer = instrumentation.beginMapDecode();
+    try {
+      RkmMapBuilder builder = new RkmMapBuilder();
+      decodeFields(reader, builder, false);
+      LazyRkmMap map = builder.buildLazy();
+      timer.end(reader.position());
+      return map;
+    } catch (Throwable t) {
+      timer.fail(reader.position(), t);
+      throw t;
+    }
+  }
+
+  private void decodeFields(RkmFieldReader reader, RkmMapBuilder builder, boolean decodeImages) throws IOException, NoSuchAlgorithmException {
+    reader.readSignature(signature);
+    FieldTasks tasks = new FieldTasks(builder, options.executor(), instrumentation);
+    TerritoryIdentityPool identities = new TerritoryIdentityPool(); // Shared by the vertices and edges, which are always decoded one after the other.
+    List<TerritoryIdentity> vertexOrder = new ArrayList<>();
+
+    boolean eof = false;
+    while (!eof) {
+      RkmFieldRecord record = reader.next().inflated();
+      ByteBuffer data = record.data();
+      RkmField field = record.field();
 
-      switch (RkmField.of(fieldNameByteArray)) {
-        case UNKNOWN -> {
+      switch (field) {
+        case UNKNOWN, CHECKSUM_ALGORITHM, FIELD_INDEX, DEFLATED -> {
           // Do nothing, skipped over.
         }
-        case MAP_CODE_NAME -> builder.setCodename(new String(fieldDataByteArray, StandardCharsets.UTF_8));
-        case MAP_DISPLAY_NAME -> builder.setDisplayName(new String(fieldDataByteArray, StandardCharsets.UTF_8));
-        case MAP_AUTHOR_NAME -> builder.setAuthor(new String(fieldDataByteArray, StandardCharsets.UTF_8));
-        case VERTICES -> builder.setVertices(decodeVertices(fieldDataByteArray));
-        case EDGES -> builder.setEdges(decodeEdges(fieldDataByteArray));
-        case MAP_IMAGE_BASE -> builder.setBaseLayer(decodeImage(fieldDataByteArray));
-        case MAP_IMAGE_TEXT -> builder.setTextLayer(decodeImage(fieldDataByteArray));
+        case MAP_CODE_NAME -> builder.setCodename(instrumentation.decodeField(field, data.limit(), () -> decodeString(data, 0, data.limit())));
+        case MAP_DISPLAY_NAME -> builder.setDisplayName(instrumentation.decodeField(field, data.limit(), () -> decodeString(data, 0, data.limit())));
+        case MAP_AUTHOR_NAME -> builder.setAuthor(instrumentation.decodeField(field, data.limit(), () -> decodeString(data, 0, data.limit())));
+        case VERTICES -> tasks.submitInOrder(record, () -> {
+          Set<Territory> vertices = decodeVertices(data, identities, vertexOrder);
+          return b -> b.setVertices(vertices);
+        });
+        case EDGES -> tasks.submitInOrder(record, () -> {
+          Set<Border> edges = decodeEdges(data, identities);
+          return b -> b.setEdges(edges);
+        });
+        case EDGES_INDEXED -> tasks.submitInOrder(record, () -> {
+          Set<Border> edges = decodeIndexedEdges(data, vertexOrder);
+          return b -> b.setEdges(edges);
+        });
+        case MAP_IMAGE_BASE, MAP_IMAGE_BASE_PIXELS -> {
+          if (decodeImages) {
+            tasks.submit(record, () -> {
+              BufferedImage baseLayer = decodeImage(field, data);
+              return b -> b.setBaseLayer(baseLayer);
+            });
+          } else {
+            builder.setBaseLayerDecoder(() -> instrumentation.decodeField(field, data.limit(), () -> decodeImage(field, data)));
+          }
+        }
+        case MAP_IMAGE_TEXT, MAP_IMAGE_TEXT_PIXELS -> {
+          if (decodeImages) {
+            tasks.submit(record, () -> {
+              BufferedImage textLayer = decodeImage(field, data);
+              return b -> b.setTextLayer(textLayer);
+            });
+          } else {
+            builder.setTextLayerDecoder(() -> instrumentation.decodeField(field, data.limit(), () -> decodeImage(field, data)));
+          }
+        }
         case CHECKSUM -> {
           eof = true;
-          byte[] checksum = MessageDigest.getInstance("SHA-512").digest(checksumBuilder.toByteArray());
-          if (!Arrays.equals(checksum, fieldDataByteArray)) {
-            throw new IllegalStateException("invalid checksum");
+          switch (options.checksumPolicy()) {
+            case VERIFY -> {
+              byte[] checksum = reader.checksum();
+              instrumentation.checksumComputed(reader.checksumAlgorithm(), record.offset(), reader.checksumNanos());
+              if (!ByteBuffer.wrap(checksum).equals(data)) {
+                tasks.cancel();
+                throw new IllegalStateException("invalid checksum");
+              }
+            }
+            case VERIFY_IN_BACKGROUND -> verifyInBackground(reader.deferredChecksum(), data, reader.checksumAlgorithm(), record.offset());
+            case SKIP -> {
+              // Trusted source, not verified.
+            }
           }
         }
       }
 
-      if (!eof) {
-        checksumBuilder.write(fieldNameByteArray);
-        checksumBuilder.write(fieldLengthByteArray);
-        checksumBuilder.write(fieldDataByteArray);
+    }
+    tasks.join();
+  }
+
+  private void verifyInBackground(Callable<byte[]> deferredChecksum, ByteBuffer expected, RkmChecksumAlgorithm algorithm, long checksummedLength) {
+    Executor executor = options.executor() == null ? DefaultExecutor.get() : options.executor();
+    CompletableFuture.runAsync(() -> {
+      try {
+        long start = System.nanoTime();
+        byte[] checksum = deferredChecksum.call();
+        instrumentation.checksumComputed(algorithm, checksummedLength, System.nanoTime() - start);
+        if (!ByteBuffer.wrap(checksum).equals(expected)) {
+          options.checksumFailureHandler().accept(new IllegalStateException("invalid checksum"));
+        }
+      } catch (Exception e) {
+        options.checksumFailureHandler().accept(e);
       }
+    }, executor);
+  }
+
+  /**
+   * @param vertexOrder filled with the identity of each vertex in the order they were encoded, for resolving {@link com.riskrieg.codec.RkmField#EDGES_INDEXED} edges
+   */
+  private Set<Territory> decodeVertices(ByteBuffer data, TerritoryIdentityPool identities, List<TerritoryIdentity> vertexOrder) {
+    // Vertex Format: [string-id-length-in-bytes][string-id][number-of-nuclei][x1][y1][x2][y2]...[xN][yN]
 
+    // Make sure to read the number of vertices first before decoding based on the vertex format!
+    int index = 0;
+    int vertexCount = data.getInt(index);
+    index += 4;
+    Set<Territory> result = new HashSet<>(capacityFor(vertexCount, data.limit() - index, 4 + 4));
+    for (int v = 0; v < vertexCount; v++) {
+      int vertexIdLengthInBytes = data.getInt(index);
+      index += 4;
+      TerritoryIdentity identity = identities.intern(data, index, vertexIdLengthInBytes);
+      index += vertexIdLengthInBytes;
+      vertexOrder.add(identity);
+
+      int nucleusCount = data.getInt(index);
+      index += 4;
+      Set<Nucleus> nuclei = new HashSet<>(capacityFor(nucleusCount, data.limit() - index, 4 + 4));
+      for (int n = 0; n < nucleusCount; n++) {
+        int x = data.getInt(index);
+        int y = data.getInt(index + 4);
+        index += 8;
+        nuclei.add(new Nucleus(x, y));
+      }
+      result.add(new Territory(identity, nuclei));
     }
-    input.reset();
-    return builder.build();
+
+    return result;
   }
 
-  private boolean checkSignature(ByteArrayInputStream bis) {
-    try {
-      bis.mark(0);
-      byte[] testSignature = readSignature(bis);
-      bis.reset();
-      return Arrays.equals(testSignature, signature);
-    } catch (IOException e) {
-      return false;
+  private Set<Border> decodeEdges(ByteBuffer data, TerritoryIdentityPool identities) {
+    int index = 0;
+    int edgeCount = data.getInt(index);
+    index += 4;
+    Set<Border> result = new HashSet<>(capacityFor(edgeCount, data.limit() - index, 4 + 4));
+    for (int e = 0; e < edgeCount; e++) {
+      int sourceIdLengthInBytes = data.getInt(index);
+      index += 4;
+      TerritoryIdentity source = identities.intern(data, index, sourceIdLengthInBytes);
+      index += sourceIdLengthInBytes;
+      int targetIdLengthInBytes = data.getInt(index);
+      index += 4;
+      TerritoryIdentity target = identities.intern(data, index, targetIdLengthInBytes);
+      index += targetIdLengthInBytes;
+      result.add(new Border(source, target));
     }
+
+    return result;
   }
 
-  private byte[] readSignature(ByteArrayInputStream bis) throws IOException {
-    return bis.readNBytes(8);
+  private Set<Border> decodeIndexedEdges(ByteBuffer data, List<TerritoryIdentity> vertexOrder) {
+    // Edge Format: [source-vertex-index-as-varint][target-vertex-index-as-varint]
+    ByteBuffer buffer = data.duplicate();
+    int edgeCount = buffer.getInt();
+    Set<Border> result = new HashSet<>(capacityFor(edgeCount, buffer.remaining(), 1 + 1));
+    for (int e = 0; e < edgeCount; e++) {
+      int source = Varints.read(buffer);
+      int target = Varints.read(buffer);
+      if (source >= vertexOrder.size() || target >= vertexOrder.size()) {
+        throw new IllegalArgumentException("edge refers to a vertex index that does not exist, or the edges field comes before the vertices field");
+      }
+      result.add(new Border(vertexOrder.get(source), vertexOrder.get(target)));
+    }
+
+    return result;
   }
 
-  private byte[] readFieldName(ByteArrayInputStream bis) throws IOException {
-    return bis.readNBytes(4);
+  /**
+   * @return the initial capacity of a hash set that will hold the given number of entries, bounded by how many entries could actually fit in the remaining bytes so that a
+   * corrupt count cannot cause a huge allocation
+   */
+  private static int capacityFor(int count, int remainingBytes, int minimumEntryLengthInBytes) {
+    int bounded = Math.max(0, Math.min(count, remainingBytes / minimumEntryLengthInBytes));
+    return (int) (bounded / 0.75F) + 1;
   }
 
-  private byte[] readFieldLength(ByteArrayInputStream bis) throws IOException {
-    return bis.readNBytes(4);
+  private String decodeString(ByteBuffer data, int index, int length) {
+    if (data.hasArray()) {
+      return new String(data.array(), data.arrayOffset() + index, length, StandardCharsets.UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    data.get(index, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
   }
 
-  private byte[] readFieldData(int length, ByteArrayInputStream bis) throws IOException {
-    return bis.readNBytes(length);
+  private BufferedImage decodeImage(RkmField field, ByteBuffer data) throws IOException {
+    if (field == RkmField.MAP_IMAGE_BASE_PIXELS || field == RkmField.MAP_IMAGE_TEXT_PIXELS) {
+      return PixelImages.decode(data, options.imageSourceRegion(), options.imageXSubsampling(), options.imageYSubsampling());
+    } else if (!options.decodesFullImages()) {
+      return ImageReading.read(new ByteBufferImageInputStream(data.duplicate()), options.imageSourceRegion(), options.imageXSubsampling(), options.imageYSubsampling());
+    }
+    BufferedImage image = ImageIO.read(new ByteBufferImageInputStream(data.duplicate())); // ImageIO closes the stream once it has been read.
+    if (image != null && options.retainEncodedImages()) {
+      byte[] encoded = new byte[data.remaining()];
+      data.duplicate().get(encoded);
+      EncodedImages.retain(image, encoded);
+    }
+    return image;
   }
 
-  private Set<Territory> decodeVertices(byte[] data) throws IOException {
-    // Vertex Format: [string-id-length-in-bytes][string-id][number-of-nuclei][x1][y1][x2][y2]...[xN][yN]
-    ByteArrayInputStream bis = new ByteArrayInputStream(data);
-    Set<Territory> result = new HashSet<>();
+  @FunctionalInterface
+  private interface FieldTask {
 
-    // Make sure to read the number of vertices first before decoding based on the vertex format!
-    int vertexCount = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-    for (int v = 0; v < vertexCount; v++) {
-      int vertexIdLengthInBytes = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-      String id = new String(bis.readNBytes(vertexIdLengthInBytes), StandardCharsets.UTF_8);
+    Consumer<RkmMapBuilder> decode() throws IOException;
 
-      int nucleusCount = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-      Set<Nucleus> nuclei = new HashSet<>();
-      for (int n = 0; n < nucleusCount; n++) {
-        int x = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-        int y = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-        nuclei.add(new Nucleus(x, y));
+  }
+
+  /**
+   * Runs the expensive field decoding either on the calling thread as each field is read, or concurrently on an executor while the remaining fields are read and hashed. Results
+   * are only applied to the builder on the calling thread.
+   */
+  private static final class FieldTasks {
+
+    private final RkmMapBuilder builder;
+    private final Executor executor;
+    private final Instrumentation instrumentation;
+    private final List<CompletableFuture<Consumer<RkmMapBuilder>>> pending = new ArrayList<>();
+    private CompletableFuture<?> lastInOrder = CompletableFuture.completedFuture(null);
+
+    private FieldTasks(RkmMapBuilder builder, @Nullable Executor executor, Instrumentation instrumentation) {
+      this.builder = builder;
+      this.executor = executor;
+      this.instrumentation = instrumentation;
+    }
+
+    private void submit(RkmFieldRecord record, FieldTask fieldTask) throws IOException {
+      FieldTask task = instrumented(record, fieldTask);
+      if (executor == null) {
+        task.decode().accept(builder);
+        return;
       }
-      result.add(new Territory(new TerritoryIdentity(id), nuclei));
+      pending.add(CompletableFuture.supplyAsync(() -> decodeUnchecked(task), executor));
     }
 
-    return result;
-  }
+    /**
+     * Like {@link #submit(RkmFieldRecord, FieldTask)}, except that each task submitted this way only starts once the previous one has finished, so they can share state that is not
+     * thread-safe.
+     */
+    private void submitInOrder(RkmFieldRecord record, FieldTask fieldTask) throws IOException {
+      FieldTask task = instrumented(record, fieldTask);
+      if (executor == null) {
+        task.decode().accept(builder);
+        return;
+      }
+      CompletableFuture<Consumer<RkmMapBuilder>> future = lastInOrder.thenApplyAsync(previous -> decodeUnchecked(task), executor);
+      lastInOrder = future;
+      pending.add(future);
+    }
+
+    private FieldTask instrumented(RkmFieldRecord record, FieldTask task) {
+      return () -> instrumentation.decodeField(record.field(), record.data().limit(), task::decode);
+    }
 
-  private Set<Border> decodeEdges(byte[] data) throws IOException {
-    ByteArrayInputStream bis = new ByteArrayInputStream(data);
-    Set<Border> result = new HashSet<>();
+    private static Consumer<RkmMapBuilder> decodeUnchecked(FieldTask task) {
+      try {
+        return task.decode();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
 
-    int edgeCount = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-    for (int e = 0; e < edgeCount; e++) {
-      int sourceIdLengthInBytes = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-      String sourceId = new String(bis.readNBytes(sourceIdLengthInBytes), StandardCharsets.UTF_8);
-      int targetIdLengthInBytes = ByteBuffer.wrap(bis.readNBytes(4)).getInt();
-      String targetId = new String(bis.readNBytes(targetIdLengthInBytes), StandardCharsets.UTF_8);
-      result.add(new Border(new TerritoryIdentity(sourceId), new TerritoryIdentity(targetId)));
+    private void cancel() {
+      pending.forEach(future -> future.cancel(true));
     }
 
-    return result;
-  }
+    private void join() throws IOException {
+      try {
+        for (CompletableFuture<Consumer<RkmMapBuilder>> future : pending) {
+          future.join().accept(builder);
+        }
+      } catch (CompletionException e) {
+        cancel();
+        Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+        if (cause instanceof IOException ioException) {
+          throw ioException;
+        } else if (cause instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        } else if (cause instanceof Error error) {
+          throw error;
+        }
+        throw e;
+      }
+    }
 
-  private BufferedImage decodeImage(byte[] data) throws IOException {
-    return ImageIO.read(new ByteArrayInputStream(data));
   }
 
 }
@@ -210,6 +467,8 @@ final class RkmMapBuilder {
   private Set<Border> edges;
   private BufferedImage baseLayer;
   private BufferedImage textLayer;
+  private LazyRkmMap.LayerDecoder baseLayerDecoder;
+  private LazyRkmMap.LayerDecoder textLayerDecoder;
 
   public RkmMapBuilder setCodename(String codename) {
     this.codename = codename;
@@ -246,9 +505,23 @@ final class RkmMapBuilder {
     return this;
   }
 
+  public RkmMapBuilder setBaseLayerDecoder(LazyRkmMap.LayerDecoder baseLayerDecoder) {
+    this.baseLayerDecoder = baseLayerDecoder;
+    return this;
+  }
+
+  public RkmMapBuilder setTextLayerDecoder(LazyRkmMap.LayerDecoder textLayerDecoder) {
+    this.textLayerDecoder = textLayerDecoder;
+    return this;
+  }
+
   public RkmMap build() {
     return new RkmMap(codename, displayName, author, vertices, edges, baseLayer, textLayer);
   }
 
+  public LazyRkmMap buildLazy() {
+    return new LazyRkmMap(codename, displayName, author, vertices, edges, baseLayerDecoder, textLayerDecoder);
+  }
+
 
 }
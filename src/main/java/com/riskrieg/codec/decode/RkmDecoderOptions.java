@@ -0,0 +1,198 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.CodecListener;
+import com.riskrieg.codec.internal.concurrent.DefaultExecutor;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.Rectangle;
+import java.lang.System.Logger.Level;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+public final class RkmDecoderOptions {
+
+  private final Executor executor;
+  private final ChecksumPolicy checksumPolicy;
+  private final Consumer<? super Exception> checksumFailureHandler;
+  private final boolean retainEncodedImages;
+  private final CodecListener listener;
+  private final Rectangle imageSourceRegion;
+  private final int imageXSubsampling;
+  private final int imageYSubsampling;
+
+  private RkmDecoderOptions(Builder builder) {
+    this.executor = builder.executor;
+    this.checksumPolicy = builder.checksumPolicy;
+    this.checksumFailureHandler = builder.checksumFailureHandler;
+    this.retainEncodedImages = builder.retainEncodedImages;
+    this.listener = builder.listener;
+    this.imageSourceRegion = builder.imageSourceRegion;
+    this.imageXSubsampling = builder.imageXSubsampling;
+    this.imageYSubsampling = builder.imageYSubsampling;
+  }
+
+  public static RkmDecoderOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return the executor that the image layers and the map graph are decoded on concurrently, or null if every field is decoded on the calling thread
+   */
+  @Nullable
+  public Executor executor() {
+    return executor;
+  }
+
+  public ChecksumPolicy checksumPolicy() {
+    return checksumPolicy;
+  }
+
+  /**
+   * @return the handler that checksum mismatches are reported to when the checksum policy is {@link ChecksumPolicy#VERIFY_IN_BACKGROUND}
+   */
+  public Consumer<? super Exception> checksumFailureHandler() {
+    return checksumFailureHandler;
+  }
+
+  /**
+   * @return whether decoded image layers remember the PNG data they were read from, so that {@link com.riskrieg.codec.encode.RkmEncoder} can write that data back out as is
+   * while the image is unmodified
+   */
+  public boolean retainEncodedImages() {
+    return retainEncodedImages;
+  }
+
+  public CodecListener listener() {
+    return listener;
+  }
+
+  /**
+   * @return the part of each image layer that is decoded, in the coordinates of the full image, or null if the whole image is decoded
+   */
+  @Nullable
+  public Rectangle imageSourceRegion() {
+    return imageSourceRegion == null ? null : new Rectangle(imageSourceRegion);
+  }
+
+  public int imageXSubsampling() {
+    return imageXSubsampling;
+  }
+
+  public int imageYSubsampling() {
+    return imageYSubsampling;
+  }
+
+  /**
+   * @return whether image layers are decoded at full size, without a source region or subsampling
+   */
+  boolean decodesFullImages() {
+    return imageSourceRegion == null && imageXSubsampling == 1 && imageYSubsampling == 1;
+  }
+
+  public static final class Builder {
+
+    private Executor executor = null;
+    private ChecksumPolicy checksumPolicy = ChecksumPolicy.VERIFY;
+    private Consumer<? super Exception> checksumFailureHandler = e -> System.getLogger(RkmDecoder.class.getName()).log(Level.WARNING, "Checksum verification failed", e);
+    private boolean retainEncodedImages = false;
+    private CodecListener listener = CodecListener.NONE;
+    private Rectangle imageSourceRegion = null;
+    private int imageXSubsampling = 1;
+    private int imageYSubsampling = 1;
+
+    private Builder() {
+    }
+
+    /**
+     * Decodes the image layers and the map graph concurrently on the default executor, which uses virtual threads when they are available.
+     */
+    public Builder setParallel(boolean parallel) {
+      this.executor = parallel ? DefaultExecutor.get() : null;
+      return this;
+    }
+
+    /**
+     * Decodes the image layers and the map graph concurrently on the given executor, or on the calling thread if it is null.
+     */
+    public Builder setExecutor(@Nullable Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    public Builder setChecksumPolicy(@NonNull ChecksumPolicy checksumPolicy) {
+      this.checksumPolicy = Objects.requireNonNull(checksumPolicy);
+      return this;
+    }
+
+    /**
+     * Sets the handler that checksum mismatches are reported to when the checksum policy is {@link ChecksumPolicy#VERIFY_IN_BACKGROUND}. By default, they are logged as
+     * warnings.
+     */
+    public Builder setChecksumFailureHandler(@NonNull Consumer<? super Exception> checksumFailureHandler) {
+      this.checksumFailureHandler = Objects.requireNonNull(checksumFailureHandler);
+      return this;
+    }
+
+    /**
+     * Keeps a copy of the PNG data of each decoded image layer for as long as the image itself is reachable. When a map is decoded, edited and encoded again, any layer whose
+     * pixels were not changed is then written without being compressed a second time. This costs the memory for the copy and one pass over the pixels when decoding.
+     * <p>
+     * Nothing is retained for image layers decoded with a source region or subsampling, since they do not match their PNG data.
+     */
+    public Builder setRetainEncodedImages(boolean retainEncodedImages) {
+      this.retainEncodedImages = retainEncodedImages;
+      return this;
+    }
+
+    /**
+     * Sets the listener that per-field timings, checksum time and per-map totals are reported to. The listener must be thread-safe.
+     */
+    public Builder setListener(@NonNull CodecListener listener) {
+      this.listener = Objects.requireNonNull(listener);
+      return this;
+    }
+
+    /**
+     * Only decodes the given part of each image layer, in the coordinates of the full image. The region is clipped to the bounds of the image. Pixels outside of it are
+     * skipped by the PNG reader, although the whole file is still read so that the checksum can be verified.
+     */
+    public Builder setImageSourceRegion(@Nullable Rectangle imageSourceRegion) {
+      if (imageSourceRegion != null && imageSourceRegion.isEmpty()) {
+        throw new IllegalArgumentException("image source region cannot be empty");
+      }
+      this.imageSourceRegion = imageSourceRegion == null ? null : new Rectangle(imageSourceRegion);
+      return this;
+    }
+
+    /**
+     * Only decodes every {@code xSubsampling}th column and every {@code ySubsampling}th row of each image layer, starting with the first, which is a cheap way of producing a
+     * thumbnail. Image layers decoded this way are not the size of the map, so any coordinates must be scaled to match.
+     */
+    public Builder setImageSubsampling(int xSubsampling, int ySubsampling) {
+      if (xSubsampling < 1 || ySubsampling < 1) {
+        throw new IllegalArgumentException("image subsampling must be greater than or equal to 1");
+      }
+      this.imageXSubsampling = xSubsampling;
+      this.imageYSubsampling = ySubsampling;
+      return this;
+    }
+
+    public RkmDecoderOptions build() {
+      return new RkmDecoderOptions(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,272 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.internal.checksum.RunningChecksum;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Reads the [field-name][length-in-bytes][data] records of an .rkm file one at a time, enforcing the field length rules and feeding every record that precedes the checksum
+ * to the checksum, as required by the checksum policy.
+ */
+abstract sealed class RkmFieldReader permits RkmFieldReader.StreamReader, RkmFieldReader.BufferReader, RkmFieldReader.GatherReader {
+
+  static final long UNKNOWN_LENGTH = -1;
+
+  private final long lengthInBytes;
+  private final ChecksumPolicy checksumPolicy;
+  private final List<ByteBuffer> checksummedData = new ArrayList<>(); // Only used when the checksum is computed later.
+  private RkmChecksumAlgorithm checksumAlgorithm = RkmChecksumAlgorithm.SHA_512;
+  private RunningChecksum checksum;
+  private ByteBuffer signature;
+  private long position;
+  private long checksumNanos;
+
+  private RkmFieldReader(long lengthInBytes, ChecksumPolicy checksumPolicy) {
+    this.lengthInBytes = lengthInBytes;
+    this.checksumPolicy = Objects.requireNonNull(checksumPolicy);
+  }
+
+  static RkmFieldReader of(InputStream input, long lengthInBytes, ChecksumPolicy checksumPolicy) {
+    return new StreamReader(input, lengthInBytes, checksumPolicy);
+  }
+
+  static RkmFieldReader of(ByteBuffer buffer, ChecksumPolicy checksumPolicy) {
+    return new BufferReader(buffer, checksumPolicy);
+  }
+
+  static RkmFieldReader of(List<ByteBuffer> buffers, ChecksumPolicy checksumPolicy) {
+    return new GatherReader(buffers, checksumPolicy);
+  }
+
+  final void readSignature(byte[] signature) throws IOException, NoSuchAlgorithmException {
+    // The shortest possible checksum is four bytes long.
+    if (lengthInBytes != UNKNOWN_LENGTH && lengthInBytes < signature.length + 4 + 4 + 4) { // Check length first before reading
+      throw new IllegalStateException("file length is too short to be a valid .rkm file");
+    }
+    ByteBuffer fileSignature = read(signature.length);
+    if (!fileSignature.equals(ByteBuffer.wrap(signature))) {
+      throw new IllegalStateException("file signature is invalid");
+    }
+    this.signature = fileSignature;
+    if (checksumPolicy == ChecksumPolicy.VERIFY) {
+      checksum = RunningChecksum.of(checksumAlgorithm);
+    }
+    updateChecksum(fileSignature);
+  }
+
+  final RkmFieldRecord next() throws IOException, NoSuchAlgorithmException {
+    long offset = position;
+    ByteBuffer header = read(4 + 4);
+    byte[] fieldName = new byte[4];
+    header.get(0, fieldName);
+    int fieldLength = header.getInt(4);
+
+    if (fieldLength < 1) {
+      throw new IllegalArgumentException("field length cannot be negative or zero");
+    } else if (lengthInBytes != UNKNOWN_LENGTH && fieldLength > lengthInBytes - position) {
+      throw new IllegalArgumentException("field length is longer than the remaining bytes in the file");
+    }
+
+    ByteBuffer data = read(fieldLength);
+    RkmField field = RkmField.of(fieldName);
+    if (field == RkmField.CHECKSUM_ALGORITHM) {
+      useChecksumAlgorithm(offset, data);
+    }
+    if (field != RkmField.CHECKSUM) {
+      updateChecksum(header);
+      updateChecksum(data);
+    } else if (fieldLength != checksumAlgorithm.checksumLength()) {
+      throw new IllegalStateException("invalid checksum");
+    }
+    return new RkmFieldRecord(field, fieldName, offset, data);
+  }
+
+  private void useChecksumAlgorithm(long offset, ByteBuffer data) throws NoSuchAlgorithmException {
+    if (offset != signature.limit()) {
+      throw new IllegalArgumentException("checksum algorithm field must come directly after the file signature");
+    }
+    byte[] algorithmName = new byte[data.limit()];
+    data.get(0, algorithmName);
+    RkmChecksumAlgorithm algorithm = RkmChecksumAlgorithm.of(new String(algorithmName, StandardCharsets.UTF_8));
+    if (algorithm == null) {
+      throw new IllegalStateException("unsupported checksum algorithm: " + new String(algorithmName, StandardCharsets.UTF_8));
+    }
+    this.checksumAlgorithm = algorithm;
+    if (checksumPolicy == ChecksumPolicy.VERIFY) {
+      checksum = RunningChecksum.of(algorithm); // Nothing but the signature has been checksummed yet, so start over.
+      checksum.update(signature.duplicate());
+    }
+  }
+
+  private void updateChecksum(ByteBuffer data) {
+    switch (checksumPolicy) {
+      case VERIFY -> {
+        long start = System.nanoTime();
+        checksum.update(data.duplicate());
+        checksumNanos += System.nanoTime() - start;
+      }
+      case VERIFY_IN_BACKGROUND -> checksummedData.add(data.duplicate());
+      case SKIP -> {
+        // Not checksummed.
+      }
+    }
+  }
+
+  /**
+   * @return the checksum of everything read before the checksum field, when the checksum policy is {@link ChecksumPolicy#VERIFY}
+   */
+  final byte[] checksum() {
+    long start = System.nanoTime();
+    byte[] result = checksum.finish();
+    checksumNanos += System.nanoTime() - start;
+    return result;
+  }
+
+  /**
+   * @return the time spent hashing so far, when the checksum policy is {@link ChecksumPolicy#VERIFY}
+   */
+  final long checksumNanos() {
+    return checksumNanos;
+  }
+
+  final RkmChecksumAlgorithm checksumAlgorithm() {
+    return checksumAlgorithm;
+  }
+
+  /**
+   * @return the number of bytes read so far
+   */
+  final long position() {
+    return position;
+  }
+
+  /**
+   * @return a task that computes the checksum of everything read before the checksum field, when the checksum policy is {@link ChecksumPolicy#VERIFY_IN_BACKGROUND}
+   */
+  final Callable<byte[]> deferredChecksum() {
+    RkmChecksumAlgorithm algorithm = checksumAlgorithm;
+    List<ByteBuffer> data = List.copyOf(checksummedData);
+    return () -> {
+      RunningChecksum deferred = RunningChecksum.of(algorithm);
+      for (ByteBuffer buffer : data) {
+        deferred.update(buffer.duplicate());
+      }
+      return deferred.finish();
+    };
+  }
+
+  /**
+   * Reads exactly {@code length} bytes, advancing the position.
+   */
+  private ByteBuffer read(int length) throws IOException {
+    ByteBuffer result = readBytes(length);
+    position += length;
+    return result;
+  }
+
+  abstract ByteBuffer readBytes(int length) throws IOException;
+
+  static final class StreamReader extends RkmFieldReader {
+
+    private final InputStream input;
+
+    private StreamReader(InputStream input, long lengthInBytes, ChecksumPolicy checksumPolicy) {
+      super(lengthInBytes, checksumPolicy);
+      this.input = Objects.requireNonNull(input);
+    }
+
+    @Override
+    ByteBuffer readBytes(int length) throws IOException {
+      byte[] bytes = input.readNBytes(length);
+      if (bytes.length != length) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+      return ByteBuffer.wrap(bytes);
+    }
+
+  }
+
+  static final class BufferReader extends RkmFieldReader {
+
+    private final ByteBuffer buffer;
+
+    private BufferReader(ByteBuffer buffer, ChecksumPolicy checksumPolicy) {
+      super(buffer.remaining(), checksumPolicy);
+      this.buffer = buffer.slice();
+    }
+
+    @Override
+    ByteBuffer readBytes(int length) {
+      if (length > buffer.remaining()) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+      ByteBuffer result = buffer.slice(buffer.position(), length);
+      buffer.position(buffer.position() + length);
+      return result;
+    }
+
+  }
+
+  /**
+   * Reads a file that is split across several buffers. Reads that fall within a single buffer are not copied.
+   */
+  static final class GatherReader extends RkmFieldReader {
+
+    private final List<ByteBuffer> buffers;
+    private int current;
+
+    private GatherReader(List<ByteBuffer> buffers, ChecksumPolicy checksumPolicy) {
+      super(buffers.stream().mapToLong(ByteBuffer::remaining).sum(), checksumPolicy);
+      this.buffers = buffers.stream().map(ByteBuffer::slice).toList();
+    }
+
+    @Override
+    ByteBuffer readBytes(int length) {
+      while (current < buffers.size() && !buffers.get(current).hasRemaining()) {
+        current++;
+      }
+      if (current == buffers.size()) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+      ByteBuffer buffer = buffers.get(current);
+      if (length <= buffer.remaining()) {
+        ByteBuffer result = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return result;
+      }
+      byte[] result = new byte[length];
+      int copied = 0;
+      while (copied < length) {
+        if (current == buffers.size()) {
+          throw new IllegalStateException("unexpected end of file");
+        }
+        buffer = buffers.get(current);
+        int count = Math.min(buffer.remaining(), length - copied);
+        buffer.get(result, copied, count);
+        copied += count;
+        if (!buffer.hasRemaining()) {
+          current++;
+        }
+      }
+      return ByteBuffer.wrap(result);
+    }
+
+  }
+
+}
@@ -0,0 +1,38 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.internal.io.FieldCompression;
+import java.nio.ByteBuffer;
+
+/**
+ * A single field record. The data buffer is positioned at the start of the field data and its limit is the end of the field data.
+ */
+record RkmFieldRecord(RkmField field, byte[] fieldName, long offset, ByteBuffer data) {
+
+  /**
+   * @return the field wrapped by this {@link RkmField#DEFLATED} field, with its data inflated and the offset of this field, or this field itself if it is not compressed
+   */
+  RkmFieldRecord inflated() {
+    if (field != RkmField.DEFLATED) {
+      return this;
+    }
+    if (data.limit() < FieldCompression.HEADER_LENGTH) {
+      throw new IllegalArgumentException("compressed field is too short");
+    }
+    byte[] wrappedFieldName = new byte[4];
+    data.get(0, wrappedFieldName);
+    RkmField wrappedField = RkmField.of(wrappedFieldName);
+    if (!FieldCompression.canWrap(wrappedField)) {
+      throw new IllegalArgumentException("field cannot be compressed: " + wrappedField);
+    }
+    return new RkmFieldRecord(wrappedField, wrappedFieldName, offset, FieldCompression.inflate(data));
+  }
+
+}
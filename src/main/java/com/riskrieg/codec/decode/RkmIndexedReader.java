@@ -0,0 +1,198 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.RkmIndex;
+import com.riskrieg.codec.internal.image.PixelImages;
+import com.riskrieg.codec.internal.io.ByteBufferImageInputStream;
+import com.riskrieg.codec.internal.io.FieldCompression;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import javax.imageio.ImageIO;
+
+/**
+ * Reads individual fields of an .rkm file by seeking to them, without reading the rest of the file. The field offsets come from the {@link RkmField#FIELD_INDEX} field if the
+ * file has one, and otherwise from a scan over the field headers.
+ * <p>
+ * Fields read this way are not covered by checksum validation, since that requires reading the whole file.
+ */
+public final class RkmIndexedReader implements Closeable {
+
+  // 8B: File signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
+  private static final byte[] SIGNATURE = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private final SeekableByteChannel channel;
+  private final RkmIndex index;
+
+  private RkmIndexedReader(SeekableByteChannel channel) throws IOException {
+    this.channel = channel;
+    checkSignature();
+    RkmIndex trailingIndex = readTrailingIndex();
+    this.index = trailingIndex == null ? scan() : trailingIndex;
+  }
+
+  public static RkmIndexedReader open(@NonNull Path path) throws IOException {
+    Objects.requireNonNull(path);
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new RkmIndexedReader(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param channel the channel to read from, which is closed when this reader is closed
+   */
+  public static RkmIndexedReader open(@NonNull SeekableByteChannel channel) throws IOException {
+    return new RkmIndexedReader(Objects.requireNonNull(channel));
+  }
+
+  public RkmIndex index() {
+    return index;
+  }
+
+  /**
+   * @return the data of the first occurrence of the field, or null if the file does not contain it. If the field is only stored inside a {@link RkmField#DEFLATED} field,
+   * it is inflated.
+   */
+  @Nullable
+  public ByteBuffer read(@NonNull RkmField field) throws IOException {
+    RkmIndex.Entry entry = index.find(field);
+    if (entry != null) {
+      return read(entry);
+    }
+    for (RkmIndex.Entry candidate : index.entries()) {
+      if (candidate.field() == RkmField.DEFLATED && candidate.length() >= FieldCompression.HEADER_LENGTH
+          && Arrays.equals(readFully(candidate.dataOffset(), 4).array(), field.fieldName())) {
+        RkmFieldRecord record = new RkmFieldRecord(RkmField.DEFLATED, RkmField.DEFLATED.fieldName(), candidate.offset(), read(candidate));
+        return record.inflated().data();
+      }
+    }
+    return null;
+  }
+
+  public ByteBuffer read(@NonNull RkmIndex.Entry entry) throws IOException {
+    Objects.requireNonNull(entry);
+    ByteBuffer header = readFully(entry.offset(), 4 + 4);
+    byte[] fieldName = new byte[4];
+    header.get(0, fieldName);
+    if (!Arrays.equals(fieldName, entry.fieldName().getBytes(StandardCharsets.ISO_8859_1)) || header.getInt(4) != entry.length()) {
+      throw new IllegalStateException("field index does not match the field at offset " + entry.offset());
+    }
+    return readFully(entry.dataOffset(), entry.length());
+  }
+
+  /**
+   * @param field either of the image layer fields, {@link RkmField#MAP_IMAGE_BASE} or {@link RkmField#MAP_IMAGE_TEXT}, which also finds the layer if its pixels are stored
+   *              directly
+   * @return the decoded image layer, or null if the file does not contain it
+   */
+  @Nullable
+  public BufferedImage readImage(@NonNull RkmField field) throws IOException {
+    RkmField pixelsField = switch (field) {
+      case MAP_IMAGE_BASE -> RkmField.MAP_IMAGE_BASE_PIXELS;
+      case MAP_IMAGE_TEXT -> RkmField.MAP_IMAGE_TEXT_PIXELS;
+      default -> throw new IllegalArgumentException("field " + field + " is not an image field");
+    };
+    ByteBuffer data = read(field);
+    if (data != null) {
+      return ImageIO.read(new ByteBufferImageInputStream(data));
+    }
+    ByteBuffer pixels = read(pixelsField);
+    return pixels == null ? null : PixelImages.decode(pixels, null, 1, 1);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void checkSignature() throws IOException {
+    if (channel.size() < SIGNATURE.length + 4 + 4 + 4) { // The shortest possible checksum is four bytes long.
+      throw new IllegalStateException("file length is too short to be a valid .rkm file");
+    }
+    if (!readFully(0, SIGNATURE.length).equals(ByteBuffer.wrap(SIGNATURE))) {
+      throw new IllegalStateException("file signature is invalid");
+    }
+  }
+
+  /**
+   * @return the index stored at the end of the file, or null if there is not one
+   */
+  @Nullable
+  private RkmIndex readTrailingIndex() throws IOException {
+    long size = channel.size();
+    long offset = readFully(size - 8, 8).getLong(0);
+    if (offset < SIGNATURE.length || offset > size - (4 + 4 + 4 + 8)) {
+      return null;
+    }
+    ByteBuffer header = readFully(offset, 4 + 4);
+    byte[] fieldName = new byte[4];
+    header.get(0, fieldName);
+    if (RkmField.of(fieldName) != RkmField.FIELD_INDEX || offset + 4 + 4 + header.getInt(4) != size) {
+      return null;
+    }
+    return RkmIndex.fromFieldData(readFully(offset + 4 + 4, header.getInt(4)));
+  }
+
+  /**
+   * Builds the index by reading every field header up to and including the checksum, skipping over the field data.
+   */
+  private RkmIndex scan() throws IOException {
+    long size = channel.size();
+    List<RkmIndex.Entry> entries = new ArrayList<>();
+    long position = SIGNATURE.length;
+    while (true) {
+      if (position + 4 + 4 > size) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+      ByteBuffer header = readFully(position, 4 + 4);
+      byte[] fieldName = new byte[4];
+      header.get(0, fieldName);
+      int fieldLength = header.getInt(4);
+      if (fieldLength < 1) {
+        throw new IllegalArgumentException("field length cannot be negative or zero");
+      } else if (fieldLength > size - position - 4 - 4) {
+        throw new IllegalArgumentException("field length is longer than the remaining bytes in the file");
+      }
+      entries.add(new RkmIndex.Entry(fieldName, position, fieldLength));
+      position += 4 + 4 + fieldLength;
+      if (RkmField.of(fieldName) == RkmField.CHECKSUM) {
+        return new RkmIndex(entries);
+      }
+    }
+  }
+
+  private ByteBuffer readFully(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    channel.position(position);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+    }
+    return buffer.flip();
+  }
+
+}
@@ -0,0 +1,48 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import com.riskrieg.codec.RkmIndex;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The result of verifying an .rkm file with {@link RkmVerifier}.
+ *
+ * @param index             every field that was found, in file order, up to and including the checksum
+ * @param problems          everything wrong with the file, in the order it was found, which is empty if the file is valid
+ * @param checksumAlgorithm the algorithm the file declares for its checksum, or null if the file ended before that could be determined
+ * @param lengthInBytes     the number of bytes that were read
+ */
+public record RkmVerificationReport(@NonNull RkmIndex index, @NonNull List<Problem> problems, @Nullable RkmChecksumAlgorithm checksumAlgorithm, long lengthInBytes) {
+
+  public RkmVerificationReport {
+    Objects.requireNonNull(index);
+    problems = List.copyOf(Objects.requireNonNull(problems));
+  }
+
+  public boolean valid() {
+    return problems.isEmpty();
+  }
+
+  /**
+   * @param offset  the offset of the start of the field the problem was found in, or of the point at which the file ended
+   * @param message a description of the problem
+   */
+  public record Problem(long offset, @NonNull String message) {
+
+    public Problem {
+      Objects.requireNonNull(message);
+    }
+
+  }
+
+}
@@ -0,0 +1,249 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.RkmIndex;
+import com.riskrieg.codec.decode.RkmVerificationReport.Problem;
+import com.riskrieg.codec.internal.checksum.RunningChecksum;
+import com.riskrieg.codec.internal.io.FieldCompression;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Checks the integrity of .rkm files without decoding them. The signature, the field length rules and the checksum are checked in the same way as by {@link RkmDecoder}, but
+ * field data is only streamed through the checksum in fixed-size chunks, so no map objects or images are created and memory use does not depend on the size of the file.
+ * <p>
+ * Problems with the file are returned in the report rather than thrown. Only errors reading the input are thrown.
+ */
+public final class RkmVerifier {
+
+  // 8B: File signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
+  private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private static final int CHUNK_LENGTH = 64 * 1024;
+  private static final int MAX_CHECKSUM_ALGORITHM_LENGTH = 64;
+
+  public RkmVerificationReport verify(@NonNull Path path) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(path);
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      return verify(inputStream, Files.size(path));
+    }
+  }
+
+  public RkmVerificationReport verify(@NonNull byte[] data) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(data);
+    return verify(new ByteArrayInputStream(data), data.length);
+  }
+
+  /**
+   * Reads the stream up to the end of the checksum field. The stream is not closed.
+   */
+  public RkmVerificationReport verify(@NonNull InputStream inputStream) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(inputStream);
+    return verify(inputStream, RkmFieldReader.UNKNOWN_LENGTH);
+  }
+
+  private RkmVerificationReport verify(InputStream input, long lengthInBytes) throws IOException, NoSuchAlgorithmException {
+    Scan scan = new Scan(input, lengthInBytes);
+    scan.run();
+    return new RkmVerificationReport(new RkmIndex(scan.entries), scan.problems, scan.checksumAlgorithm, scan.position);
+  }
+
+  private final class Scan {
+
+    private final InputStream input;
+    private final long lengthInBytes;
+    private final byte[] chunk = new byte[CHUNK_LENGTH];
+    private final List<RkmIndex.Entry> entries = new ArrayList<>();
+    private final List<Problem> problems = new ArrayList<>();
+    private final Set<RkmField> fields = EnumSet.noneOf(RkmField.class);
+    private RkmChecksumAlgorithm checksumAlgorithm = RkmChecksumAlgorithm.SHA_512;
+    private RunningChecksum checksum;
+    private long position;
+
+    private Scan(InputStream input, long lengthInBytes) {
+      this.input = input;
+      this.lengthInBytes = lengthInBytes;
+    }
+
+    private void run() throws IOException, NoSuchAlgorithmException {
+      if (lengthInBytes != RkmFieldReader.UNKNOWN_LENGTH && lengthInBytes < signature.length + 4 + 4 + 4) {
+        problems.add(new Problem(0, "file length is too short to be a valid .rkm file"));
+        checksumAlgorithm = null;
+        return;
+      }
+      byte[] fileSignature = readFully(signature.length);
+      if (fileSignature == null || !Arrays.equals(fileSignature, signature)) {
+        problems.add(new Problem(0, "file signature is invalid"));
+        checksumAlgorithm = null;
+        return;
+      }
+      checksum = RunningChecksum.of(checksumAlgorithm);
+      checksum.update(fileSignature);
+
+      while (true) {
+        long offset = position;
+        byte[] header = readFully(4 + 4);
+        if (header == null) {
+          problems.add(new Problem(offset, "unexpected end of file"));
+          break;
+        }
+        byte[] fieldName = Arrays.copyOf(header, 4);
+        int fieldLength = ByteBuffer.wrap(header).getInt(4);
+        RkmField field = RkmField.of(fieldName);
+
+        if (fieldLength < 1) {
+          problems.add(new Problem(offset, "field length cannot be negative or zero"));
+          break;
+        } else if (lengthInBytes != RkmFieldReader.UNKNOWN_LENGTH && fieldLength > lengthInBytes - position) {
+          problems.add(new Problem(offset, "field length is longer than the remaining bytes in the file"));
+          break;
+        }
+        entries.add(new RkmIndex.Entry(fieldName, offset, fieldLength));
+        fields.add(field);
+
+        if (field == RkmField.CHECKSUM) {
+          verifyChecksum(offset, fieldLength);
+          checkRequiredFields(); // Only meaningful once every field has been seen.
+          break;
+        } else if (field == RkmField.CHECKSUM_ALGORITHM) {
+          if (!useChecksumAlgorithm(offset, header, fieldLength)) {
+            break;
+          }
+        } else if (field == RkmField.DEFLATED && fieldLength >= FieldCompression.HEADER_LENGTH) {
+          // Only the name of the wrapped field is needed, so the data is not inflated. The checksum covers it as it is stored.
+          checksum.update(header);
+          byte[] wrappedHeader = readFully(FieldCompression.HEADER_LENGTH);
+          if (wrappedHeader != null) {
+            checksum.update(wrappedHeader);
+          }
+          if (wrappedHeader == null || !skipChecksummed(fieldLength - FieldCompression.HEADER_LENGTH)) {
+            problems.add(new Problem(offset, "unexpected end of file"));
+            break;
+          }
+          RkmField wrappedField = RkmField.of(Arrays.copyOf(wrappedHeader, 4));
+          if (FieldCompression.canWrap(wrappedField)) {
+            fields.add(wrappedField);
+          } else {
+            problems.add(new Problem(offset, "field cannot be compressed: " + wrappedField));
+          }
+        } else {
+          if (field == RkmField.DEFLATED) {
+            problems.add(new Problem(offset, "compressed field is too short"));
+          }
+          checksum.update(header);
+          if (!skipChecksummed(fieldLength)) {
+            problems.add(new Problem(offset, "unexpected end of file"));
+            break;
+          }
+        }
+      }
+    }
+
+    private boolean useChecksumAlgorithm(long offset, byte[] header, int fieldLength) throws IOException, NoSuchAlgorithmException {
+      byte[] data = fieldLength <= MAX_CHECKSUM_ALGORITHM_LENGTH ? readFully(fieldLength) : null;
+      if (data == null) {
+        problems.add(new Problem(offset, fieldLength <= MAX_CHECKSUM_ALGORITHM_LENGTH ? "unexpected end of file" : "unsupported checksum algorithm"));
+        return false;
+      }
+      if (offset != signature.length) {
+        problems.add(new Problem(offset, "checksum algorithm field must come directly after the file signature"));
+        checksum.update(header);
+        checksum.update(data);
+        return true;
+      }
+      RkmChecksumAlgorithm algorithm = RkmChecksumAlgorithm.of(new String(data, StandardCharsets.UTF_8));
+      if (algorithm == null) {
+        problems.add(new Problem(offset, "unsupported checksum algorithm: " + new String(data, StandardCharsets.UTF_8)));
+        return false;
+      }
+      checksumAlgorithm = algorithm;
+      checksum = RunningChecksum.of(algorithm); // Nothing but the signature has been checksummed yet, so start over.
+      checksum.update(signature);
+      checksum.update(header);
+      checksum.update(data);
+      return true;
+    }
+
+    private void verifyChecksum(long offset, int fieldLength) throws IOException {
+      if (fieldLength != checksumAlgorithm.checksumLength()) {
+        problems.add(new Problem(offset, "invalid checksum"));
+        return;
+      }
+      byte[] fileChecksum = readFully(fieldLength);
+      if (fileChecksum == null) {
+        problems.add(new Problem(offset, "unexpected end of file"));
+      } else if (!Arrays.equals(checksum.finish(), fileChecksum)) {
+        problems.add(new Problem(offset, "invalid checksum"));
+      }
+    }
+
+    private void checkRequiredFields() {
+      for (RkmField required : List.of(RkmField.MAP_CODE_NAME, RkmField.MAP_DISPLAY_NAME, RkmField.MAP_AUTHOR_NAME, RkmField.VERTICES)) {
+        if (!fields.contains(required)) {
+          problems.add(new Problem(position, "required field is missing: " + new String(required.fieldName(), StandardCharsets.UTF_8)));
+        }
+      }
+      requireEither(RkmField.EDGES, RkmField.EDGES_INDEXED);
+      requireEither(RkmField.MAP_IMAGE_BASE, RkmField.MAP_IMAGE_BASE_PIXELS);
+      requireEither(RkmField.MAP_IMAGE_TEXT, RkmField.MAP_IMAGE_TEXT_PIXELS);
+    }
+
+    private void requireEither(RkmField first, RkmField second) {
+      if (!fields.contains(first) && !fields.contains(second)) {
+        problems.add(new Problem(position, "required field is missing: " + new String(first.fieldName(), StandardCharsets.UTF_8) + " or "
+            + new String(second.fieldName(), StandardCharsets.UTF_8)));
+      }
+    }
+
+    /**
+     * Feeds the next {@code length} bytes to the checksum in chunks.
+     *
+     * @return false if the stream ended first
+     */
+    private boolean skipChecksummed(int length) throws IOException {
+      int remaining = length;
+      while (remaining > 0) {
+        int read = input.readNBytes(chunk, 0, Math.min(remaining, chunk.length));
+        position += read;
+        checksum.update(ByteBuffer.wrap(chunk, 0, read));
+        if (read == 0) {
+          return false;
+        }
+        remaining -= read;
+      }
+      return true;
+    }
+
+    /**
+     * @return the next {@code length} bytes, or null if the stream ended first
+     */
+    private byte[] readFully(int length) throws IOException {
+      byte[] bytes = input.readNBytes(length);
+      position += bytes.length;
+      return bytes.length == length ? bytes : null;
+    }
+
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.codec.RkpField;
+import com.riskrieg.palette.RkpColor;
+import com.riskrieg.palette.RkpPalette;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+/**
+ * Decodes palettes in the binary .rkp format described by {@link RkpField}. {@link RkpDecoder} also accepts this format, so this decoder is only needed when the input is
+ * known to be binary.
+ */
+public final class RkpBinaryDecoder implements Decoder<RkpPalette> {
+
+  // 8B: File signature. HEX: 83 52 4B 50 0D 0A 1A 0A -- \131 R K P \r \n \032 \n
+  private static final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x50, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  static final int SIGNATURE_LENGTH = 8;
+
+  /**
+   * @return whether the data starts with the binary palette signature
+   */
+  static boolean hasSignature(byte[] data) {
+    return data.length >= signature.length && Arrays.equals(data, 0, signature.length, signature, 0, signature.length);
+  }
+
+  @Override
+  public RkpPalette decode(Path path) throws IOException {
+    Objects.requireNonNull(path);
+    return decode(Files.readAllBytes(path));
+  }
+
+  @Override
+  public RkpPalette decode(URL url) throws IOException {
+    Objects.requireNonNull(url);
+    try (InputStream inputStream = url.openStream()) {
+      return decode(inputStream.readAllBytes());
+    }
+  }
+
+  @Override
+  public RkpPalette decode(byte[] data) {
+    Objects.requireNonNull(data);
+    if (data.length < signature.length + 8 + 4 + 4) { // Signature, then at least one field header and a 4-byte checksum
+      throw new IllegalStateException("file length is too short to be a valid binary .rkp file");
+    }
+    if (!hasSignature(data)) {
+      throw new IllegalStateException("file signature is invalid");
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(signature.length);
+    String name = null;
+    SortedSet<RkpColor> colors = null;
+    while (true) {
+      if (buffer.remaining() < 8) {
+        throw new IllegalStateException("unexpected end of file");
+      }
+      int fieldStart = buffer.position();
+      byte[] fieldName = new byte[4];
+      buffer.get(fieldName);
+      int fieldLength = buffer.getInt();
+      if (fieldLength <= 0) {
+        throw new IllegalArgumentException("field length cannot be negative or zero");
+      } else if (fieldLength > buffer.remaining()) {
+        throw new IllegalArgumentException("field length is longer than the remaining bytes in the file");
+      }
+      ByteBuffer fieldData = buffer.slice(buffer.position(), fieldLength);
+      buffer.position(buffer.position() + fieldLength);
+
+      switch (RkpField.of(fieldName)) {
+        case PALETTE_NAME -> name = StandardCharsets.UTF_8.decode(fieldData).toString();
+        case COLORS -> colors = decodeColors(fieldData);
+        case CHECKSUM -> {
+          CRC32C checksum = new CRC32C();
+          checksum.update(data, 0, fieldStart);
+          if (fieldLength != 4 || fieldData.getInt() != (int) checksum.getValue()) {
+            throw new IllegalStateException("invalid checksum");
+          }
+          if (name == null || colors == null) {
+            throw new IllegalStateException("palette name or colors field is missing");
+          }
+          return new RkpPalette(name, colors);
+        }
+        default -> {
+        }
+      }
+    }
+  }
+
+  @Override
+  public RkpPalette decode(InputStream inputStream) throws IOException {
+    Objects.requireNonNull(inputStream);
+    return decode(inputStream.readAllBytes());
+  }
+
+  private SortedSet<RkpColor> decodeColors(ByteBuffer data) {
+    SortedSet<RkpColor> colors = new TreeSet<>();
+    int count = data.getInt();
+    for (int i = 0; i < count; i++) {
+      int order = data.getInt();
+      int nameLength = data.getInt();
+      if (nameLength < 0 || nameLength > data.remaining()) {
+        throw new IllegalArgumentException("color name length is longer than the remaining bytes in the field");
+      }
+      String name = StandardCharsets.UTF_8.decode(data.slice(data.position(), nameLength)).toString();
+      data.position(data.position() + nameLength);
+      colors.add(new RkpColor(order, name, Byte.toUnsignedInt(data.get()), Byte.toUnsignedInt(data.get()), Byte.toUnsignedInt(data.get())));
+    }
+    return colors;
+  }
+
+}
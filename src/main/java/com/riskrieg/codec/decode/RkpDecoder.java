@@ -7,72 +7,86 @@
 
 package com.riskrieg.codec.decode;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.riskrieg.codec.internal.json.JsonHelper;
 import com.riskrieg.palette.RkpPalette;
 import com.riskrieg.palette.legacy.LegacyPalette;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
+/**
+ * Decodes palettes from JSON, including legacy palettes, and from the binary .rkp format, which is detected by its file signature.
+ */
 public final class RkpDecoder implements Decoder<RkpPalette> {
 
+  private final RkpBinaryDecoder binaryDecoder = new RkpBinaryDecoder();
+
   @Override
   public RkpPalette decode(Path path) throws IOException {
     Objects.requireNonNull(path);
-    try {
-      return JsonHelper.read(path, RkpPalette.class);
-    } catch (Exception e) {
-      return decodeLegacy(path);
-    }
-  }
-
-  private RkpPalette decodeLegacy(Path path) throws IOException {
-    try {
-      return JsonHelper.read(path, LegacyPalette.class).toRkpPalette();
-    } catch (NullPointerException e) {
+    if (!Files.isRegularFile(path) || !Files.isReadable(path)) {
       return null;
     }
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      return decode(inputStream);
+    }
   }
 
   @Override
   public RkpPalette decode(URL url) throws IOException {
     Objects.requireNonNull(url);
-    try {
-      try (InputStream inputStream = url.openStream()) {
-        final byte[] data = inputStream.readAllBytes();
-        return JsonHelper.read(new String(data, StandardCharsets.UTF_8), RkpPalette.class);
-      }
-    } catch (Exception e) {
-      return decodeLegacy(url);
-    }
-  }
-
-  private RkpPalette decodeLegacy(URL url) throws IOException {
     try (InputStream inputStream = url.openStream()) {
-      final byte[] data = inputStream.readAllBytes();
-      LegacyPalette legacy = JsonHelper.read(new String(data, StandardCharsets.UTF_8), LegacyPalette.class);
-      return legacy.toRkpPalette();
-    } catch (NullPointerException e) {
-      return null;
+      return decode(inputStream);
     }
   }
 
   @Override
   public RkpPalette decode(byte[] data) throws IOException {
     Objects.requireNonNull(data);
-    try {
-      return JsonHelper.read(new String(data, StandardCharsets.UTF_8), RkpPalette.class);
-    } catch (Exception e) {
-      return decodeLegacy(data);
+    if (RkpBinaryDecoder.hasSignature(data)) {
+      return binaryDecoder.decode(data);
+    }
+    return decodeTree(JsonHelper.readTree(data));
+  }
+
+  @Override
+  public RkpPalette decode(InputStream inputStream) throws IOException {
+    Objects.requireNonNull(inputStream);
+    byte[] prefix = inputStream.readNBytes(RkpBinaryDecoder.SIGNATURE_LENGTH);
+    InputStream fullStream = new SequenceInputStream(new ByteArrayInputStream(prefix), inputStream);
+    if (RkpBinaryDecoder.hasSignature(prefix)) {
+      return binaryDecoder.decode(fullStream);
+    }
+    return decodeTree(JsonHelper.readTree(fullStream));
+  }
+
+  /**
+   * The input is only parsed once. A tree whose fields all belong to a current palette is bound to one first, and anything else, including a tree that fails to bind, is
+   * decoded as a legacy palette, just as if the current format had been tried and failed.
+   */
+  private RkpPalette decodeTree(JsonNode tree) throws IOException {
+    if (tree == null) {
+      return null;
+    }
+    if (JsonHelper.hasOnlyPropertiesOf(tree, RkpPalette.class)) {
+      try {
+        return JsonHelper.read(tree, RkpPalette.class);
+      } catch (Exception e) {
+        return decodeLegacy(tree);
+      }
     }
+    return decodeLegacy(tree);
   }
 
-  private RkpPalette decodeLegacy(byte[] data) throws IOException {
+  private RkpPalette decodeLegacy(JsonNode tree) throws IOException {
     try {
-      LegacyPalette legacy = JsonHelper.read(new String(data, StandardCharsets.UTF_8), LegacyPalette.class);
+      LegacyPalette legacy = JsonHelper.read(tree, LegacyPalette.class);
       return legacy.toRkpPalette();
     } catch (NullPointerException e) {
       return null;
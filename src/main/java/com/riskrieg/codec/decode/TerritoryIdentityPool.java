@@ -0,0 +1,89 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.decode;
+
+import com.riskrieg.map.territory.TerritoryIdentity;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hands out a single canonical {@link TerritoryIdentity} per territory ID while decoding a map. IDs are looked up by their encoded bytes, so an ID that has already been seen
+ * is resolved without allocating anything. This is not thread-safe.
+ */
+final class TerritoryIdentityPool {
+
+  private byte[][] keys = new byte[64][];
+  private TerritoryIdentity[] values = new TerritoryIdentity[64];
+  private int size;
+
+  /**
+   * @param data   the buffer containing the UTF-8 encoded ID
+   * @param index  the absolute index of the ID in the buffer
+   * @param length the length of the ID in bytes
+   */
+  TerritoryIdentity intern(ByteBuffer data, int index, int length) {
+    int hash = hash(data, index, length);
+    int mask = keys.length - 1;
+    int slot = hash & mask;
+    while (keys[slot] != null) {
+      if (matches(keys[slot], data, index, length)) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    byte[] key = new byte[length];
+    data.get(index, key);
+    TerritoryIdentity identity = new TerritoryIdentity(new String(key, StandardCharsets.UTF_8));
+    keys[slot] = key;
+    values[slot] = identity;
+    if (++size > keys.length / 2) {
+      grow();
+    }
+    return identity;
+  }
+
+  private void grow() {
+    byte[][] oldKeys = keys;
+    TerritoryIdentity[] oldValues = values;
+    keys = new byte[oldKeys.length * 2][];
+    values = new TerritoryIdentity[oldValues.length * 2];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != null) {
+        int slot = hash(ByteBuffer.wrap(oldKeys[i]), 0, oldKeys[i].length) & mask;
+        while (keys[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int hash(ByteBuffer data, int index, int length) {
+    int hash = 1;
+    for (int i = index; i < index + length; i++) {
+      hash = 31 * hash + data.get(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static boolean matches(byte[] key, ByteBuffer data, int index, int length) {
+    if (key.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (key[i] != data.get(index + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+import com.riskrieg.codec.internal.concurrent.DefaultExecutor;
+import com.riskrieg.codec.internal.io.AsyncFiles;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs an {@link Encoder} without blocking the caller. The encoding itself, including any image encoding, runs on the executor, and files are written with an
+ * {@link java.nio.channels.AsynchronousFileChannel}. Failures, including the checked exceptions thrown by the encoder, complete the returned future exceptionally.
+ */
+public final class AsyncEncoder<T> {
+
+  private final Encoder<T> encoder;
+  private final Executor executor;
+
+  /**
+   * Uses the default executor, which uses virtual threads when they are available.
+   */
+  public AsyncEncoder(@NonNull Encoder<T> encoder) {
+    this(encoder, DefaultExecutor.get());
+  }
+
+  public AsyncEncoder(@NonNull Encoder<T> encoder, @NonNull Executor executor) {
+    this.encoder = Objects.requireNonNull(encoder);
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * Encodes the object and writes it to the file, creating any missing parent directories and replacing the file if it already exists.
+   */
+  public CompletableFuture<Void> encode(@NonNull T object, @NonNull Path path) {
+    Objects.requireNonNull(object);
+    Objects.requireNonNull(path);
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        if (path.getParent() != null) {
+          Files.createDirectories(path.getParent());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        encoder.encode(object, outputStream);
+        return outputStream.toByteArray();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor).thenCompose(data -> AsyncFiles.write(path, data));
+  }
+
+  /**
+   * The stream is written on the executor, so the caller must not use it until the returned future is complete.
+   */
+  public CompletableFuture<Void> encode(@NonNull T object, @NonNull OutputStream outputStream, boolean shouldCloseStream) {
+    Objects.requireNonNull(object);
+    Objects.requireNonNull(outputStream);
+    return CompletableFuture.runAsync(() -> {
+      try {
+        encoder.encode(object, outputStream, shouldCloseStream);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  public CompletableFuture<Void> encode(@NonNull T object, @NonNull OutputStream outputStream) {
+    return encode(object, outputStream, true);
+  }
+
+}
@@ -7,11 +7,16 @@
 
 package com.riskrieg.codec.encode;
 
+import com.riskrieg.codec.internal.io.FieldDataStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.security.NoSuchAlgorithmException;
 
-public sealed interface Encoder<T> permits RkmEncoder, RkpEncoder {
+public sealed interface Encoder<T> permits RkmEncoder, RkpEncoder, RkpBinaryEncoder, RkbEncoder {
 
   void encode(T object, OutputStream outputStream, boolean shouldCloseStream) throws IOException, NoSuchAlgorithmException;
 
@@ -19,4 +24,27 @@ public sealed interface Encoder<T> permits RkmEncoder, RkpEncoder {
     encode(object, outputStream, true);
   }
 
+  /**
+   * Encodes to the channel, which must be in blocking mode and is left open.
+   */
+  default void encode(T object, WritableByteChannel channel) throws IOException, NoSuchAlgorithmException {
+    encode(object, Channels.newOutputStream(channel), false);
+  }
+
+  /**
+   * Encodes into the buffer, starting at its position and advancing it past the encoded data.
+   *
+   * @throws java.nio.BufferOverflowException if the encoded data does not fit in the remaining space of the buffer, in which case the contents of the buffer past its
+   *                                          original position are unspecified
+   */
+  default void encode(T object, ByteBuffer buffer) throws IOException, NoSuchAlgorithmException {
+    FieldDataStream output = new FieldDataStream();
+    encode(object, output, false);
+    ByteBuffer data = output.data();
+    if (data.remaining() > buffer.remaining()) {
+      throw new BufferOverflowException();
+    }
+    buffer.put(data);
+  }
+
 }
@@ -0,0 +1,181 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+import com.riskrieg.codec.RkbBundle;
+import com.riskrieg.codec.RkbField;
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.map.RkmMap;
+import com.riskrieg.palette.RkpPalette;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes bundles in the .rkb format described by {@link RkbField}. Every map is encoded with the given {@link RkmEncoder} and then split into its fields, so a map read back
+ * out of the bundle is byte-for-byte the .rkm file it was encoded as, apart from any {@link RkmField#FIELD_INDEX} field, which is dropped. Field data is deduplicated by its
+ * SHA-256 hash.
+ */
+public final class RkbEncoder implements Encoder<RkbBundle> {
+
+  // 8B: File signature. HEX: 83 52 4B 42 0D 0A 1A 0A -- \131 R K B \r \n \032 \n
+  private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x42, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  private static final int SIGNATURE_LENGTH = 8;
+
+  private final RkmEncoder mapEncoder;
+  private final RkpBinaryEncoder paletteEncoder = new RkpBinaryEncoder();
+
+  public RkbEncoder() {
+    this(new RkmEncoder());
+  }
+
+  public RkbEncoder(RkmEncoder mapEncoder) {
+    this.mapEncoder = Objects.requireNonNull(mapEncoder);
+  }
+
+  @Override
+  public void encode(RkbBundle object, OutputStream outputStream, boolean shouldCloseStream) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(object);
+    Objects.requireNonNull(outputStream);
+
+    BlobWriter blobs = new BlobWriter(new DataOutputStream(new BufferedOutputStream(outputStream)));
+    blobs.output.write(signature);
+    blobs.position = signature.length;
+
+    // The blobs are written as the maps and palettes are encoded, so only one encoded map is held in memory at a time.
+    ByteArrayOutputStream entries = new ByteArrayOutputStream();
+    DataOutputStream entryData = new DataOutputStream(entries);
+    entryData.writeInt(object.maps().size());
+    for (Map.Entry<String, RkmMap> map : object.maps().entrySet()) {
+      writeName(entryData, map.getKey());
+      writeMapFields(entryData, blobs, encodeMap(map.getValue()));
+    }
+    entryData.writeInt(object.palettes().size());
+    for (Map.Entry<String, RkpPalette> palette : object.palettes().entrySet()) {
+      writeName(entryData, palette.getKey());
+      entryData.writeInt(blobs.add(ByteBuffer.wrap(encodePalette(palette.getValue()))));
+    }
+
+    writeDirectory(blobs, entries.toByteArray());
+    blobs.output.flush();
+    if (shouldCloseStream) {
+      outputStream.close();
+    }
+  }
+
+  private byte[] encodeMap(RkmMap map) throws IOException, NoSuchAlgorithmException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    mapEncoder.encode(map, buffer, false);
+    return buffer.toByteArray();
+  }
+
+  private byte[] encodePalette(RkpPalette palette) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    paletteEncoder.encode(palette, buffer, false);
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Writes the field list of an encoded map to the directory entry, adding the data of each field up to and including the checksum as a blob.
+   */
+  private void writeMapFields(DataOutputStream entryData, BlobWriter blobs, byte[] encodedMap) throws IOException {
+    ByteBuffer file = ByteBuffer.wrap(encodedMap);
+    ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    DataOutputStream fieldData = new DataOutputStream(fields);
+    int fieldCount = 0;
+    int position = SIGNATURE_LENGTH;
+    boolean eof = false;
+    while (!eof) {
+      byte[] fieldName = new byte[4];
+      file.get(position, fieldName);
+      int length = file.getInt(position + 4);
+      fieldData.write(fieldName);
+      fieldData.writeInt(blobs.add(file.slice(position + 4 + 4, length)));
+      fieldCount++;
+      position += 4 + 4 + length;
+      eof = RkmField.of(fieldName) == RkmField.CHECKSUM;
+    }
+    entryData.writeInt(fieldCount);
+    fields.writeTo(entryData);
+  }
+
+  private void writeName(DataOutputStream data, String name) throws IOException {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length);
+    data.write(bytes);
+  }
+
+  private void writeDirectory(BlobWriter blobs, byte[] entries) throws IOException {
+    ByteBuffer directory = ByteBuffer.allocate(Math.addExact(4 + blobs.count * (8 + 4) + entries.length + 4, 8));
+    directory.putInt(blobs.count);
+    directory.put(blobs.table.toByteArray());
+    directory.put(entries);
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(directory.array(), 0, directory.position());
+    directory.putInt((int) checksum.getValue());
+    directory.putLong(blobs.position);
+
+    blobs.output.write(RkbField.DIRECTORY.fieldName()); // 4 bytes
+    blobs.output.writeInt(directory.capacity()); // 4 bytes
+    blobs.output.write(directory.array()); // fieldLength bytes
+  }
+
+  /**
+   * Writes each distinct blob once, remembering where it was written.
+   */
+  private static final class BlobWriter {
+
+    private final DataOutputStream output;
+    private final MessageDigest digest;
+    private final Map<ByteBuffer, Integer> numbers = new HashMap<>();
+    private final ByteArrayOutputStream table = new ByteArrayOutputStream();
+    private final DataOutputStream tableData = new DataOutputStream(table);
+    private long position;
+    private int count;
+
+    private BlobWriter(DataOutputStream output) throws NoSuchAlgorithmException {
+      this.output = output;
+      this.digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    /**
+     * @return the number of the blob holding the given data, which is only written if no identical blob has been written before
+     */
+    private int add(ByteBuffer data) throws IOException {
+      digest.update(data.duplicate());
+      ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+      Integer existing = numbers.get(hash);
+      if (existing != null) {
+        return existing;
+      }
+      int length = data.remaining();
+      output.write(RkbField.BLOB.fieldName()); // 4 bytes
+      output.writeInt(length); // 4 bytes
+      output.write(data.array(), data.arrayOffset() + data.position(), length); // fieldLength bytes
+      tableData.writeLong(position + 4 + 4);
+      tableData.writeInt(length);
+      position += 4 + 4 + length;
+      numbers.put(hash, count);
+      return count++;
+    }
+
+  }
+
+}
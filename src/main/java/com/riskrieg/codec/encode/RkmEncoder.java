@@ -7,19 +7,33 @@
 
 package com.riskrieg.codec.encode;
 
+import com.riskrieg.codec.RkmChecksumAlgorithm;
 import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.RkmImageEncoding;
+import com.riskrieg.codec.internal.checksum.RunningChecksum;
+import com.riskrieg.codec.internal.image.EncodedImages;
+import com.riskrieg.codec.internal.image.PixelImages;
+import com.riskrieg.codec.internal.instrument.Instrumentation;
+import com.riskrieg.codec.internal.instrument.Instrumentation.MapTimer;
+import com.riskrieg.codec.internal.io.FieldCompression;
+import com.riskrieg.codec.internal.io.FieldDataStream;
+import com.riskrieg.codec.internal.io.FieldOutput;
+import com.riskrieg.codec.internal.io.Varints;
 import com.riskrieg.map.RkmMap;
 import com.riskrieg.map.Territory;
 import com.riskrieg.map.territory.Border;
 import com.riskrieg.map.territory.Nucleus;
+import com.riskrieg.map.territory.TerritoryIdentity;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import javax.imageio.ImageIO;
 
@@ -28,123 +42,185 @@ public final class RkmEncoder implements Encoder<RkmMap> {
   // 8B: File signature. HEX: 83 52 4B 4D 0D 0A 1A 0A -- \131 R K M \r \n \032 \n
   private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x4D, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
 
+  private final RkmEncoderOptions options;
+  private final Instrumentation instrumentation;
+
+  public RkmEncoder() {
+    this(RkmEncoderOptions.defaults());
+  }
+
+  public RkmEncoder(RkmEncoderOptions options) {
+    this.options = Objects.requireNonNull(options);
+    this.instrumentation = new Instrumentation(options.listener());
+  }
+
   @Override
   public void encode(RkmMap map, OutputStream outputStream, boolean shouldCloseStream) throws IOException, NoSuchAlgorithmException {
     Objects.requireNonNull(map);
     Objects.requireNonNull(outputStream);
+    encode(map, FieldOutput.of(outputStream));
+    if (shouldCloseStream) {
+      outputStream.close();
+    }
+  }
 
-    writeSignature(outputStream);
-    writeField(RkmField.MAP_CODE_NAME, map.codename().getBytes(StandardCharsets.UTF_8), outputStream);
-    writeField(RkmField.MAP_DISPLAY_NAME, map.displayName().getBytes(StandardCharsets.UTF_8), outputStream);
-    writeField(RkmField.MAP_AUTHOR_NAME, map.author().getBytes(StandardCharsets.UTF_8), outputStream);
-
-    writeVertices(map.vertices().toArray(new Territory[0]), outputStream);
-    writeEdges(map.edges().toArray(new Border[0]), outputStream);
+  /**
+   * Writes the header and data of each field to the channel together, as a single gathering write if the channel supports it, such as a {@link java.nio.channels.FileChannel}
+   * or {@link java.nio.channels.SocketChannel}. The channel must be in blocking mode, and is left open.
+   */
+  @Override
+  public void encode(RkmMap map, WritableByteChannel channel) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(map);
+    Objects.requireNonNull(channel);
+    encode(map, FieldOutput.of(channel));
+  }
 
-    writeBaseImageLayer(map.baseLayer(), outputStream);
-    writeTextImageLayer(map.textLayer(), outputStream);
+  @Override
+  public void encode(RkmMap map, ByteBuffer buffer) throws IOException, NoSuchAlgorithmException {
+    Objects.requireNonNull(map);
+    Objects.requireNonNull(buffer);
+    encode(map, FieldOutput.of(buffer));
+  }
 
-    // Checksum
-    ByteArrayOutputStream checksumBuilder = new ByteArrayOutputStream();
-    writeSignature(checksumBuilder);
-    writeField(RkmField.MAP_CODE_NAME, map.codename().getBytes(StandardCharsets.UTF_8), checksumBuilder);
-    writeField(RkmField.MAP_DISPLAY_NAME, map.displayName().getBytes(StandardCharsets.UTF_8), checksumBuilder);
-    writeField(RkmField.MAP_AUTHOR_NAME, map.author().getBytes(StandardCharsets.UTF_8), checksumBuilder);
+  private void encode(RkmMap map, FieldOutput output) throws IOException, NoSuchAlgorithmException {
+    MapTimer timer = instrumentation.beginMapEncode();
+    RkmFieldWriter writer = null;
+    try {
+      // Every field except the checksum is written through the checksum, so the checksum is computed in the same pass that writes the file.
+      writer = new RkmFieldWriter(output, RunningChecksum.of(options.checksumAlgorithm()));
+      encodeFields(map, writer);
+      timer.end(writer.position());
+    } catch (Throwable t) { // Failed encodes are recorded too, with however much was written before the failure.
+      timer.fail(writer == null ? 0 : writer.position(), t);
+      throw t;
+    }
+  }
 
-    writeVertices(map.vertices().toArray(new Territory[0]), checksumBuilder);
-    writeEdges(map.edges().toArray(new Border[0]), checksumBuilder);
+  private void encodeFields(RkmMap map, RkmFieldWriter writer) throws IOException {
+    RkmChecksumAlgorithm checksumAlgorithm = options.checksumAlgorithm();
+    writer.writeSignature(signature);
+    if (checksumAlgorithm != RkmChecksumAlgorithm.SHA_512) {
+      writer.writeField(RkmField.CHECKSUM_ALGORITHM, checksumAlgorithm.algorithmName().getBytes(StandardCharsets.UTF_8));
+    }
+    writeStringField(RkmField.MAP_CODE_NAME, map.codename(), writer);
+    writeStringField(RkmField.MAP_DISPLAY_NAME, map.displayName(), writer);
+    writeStringField(RkmField.MAP_AUTHOR_NAME, map.author(), writer);
+
+    Territory[] vertices = map.vertices().toArray(new Territory[0]);
+    instrumentation.encodeField(RkmField.VERTICES, () -> writeVertices(vertices, writer));
+    if (options.indexedEdges()) {
+      instrumentation.encodeField(RkmField.EDGES_INDEXED, () -> writeIndexedEdges(vertices, map.edges().toArray(new Border[0]), writer));
+    } else {
+      instrumentation.encodeField(RkmField.EDGES, () -> writeEdges(map.edges().toArray(new Border[0]), writer));
+    }
 
-    writeBaseImageLayer(map.baseLayer(), checksumBuilder);
-    writeTextImageLayer(map.textLayer(), checksumBuilder);
+    if (options.imageEncoding() == RkmImageEncoding.PNG) {
+      instrumentation.encodeField(RkmField.MAP_IMAGE_BASE, () -> writeImageLayer(RkmField.MAP_IMAGE_BASE, map.baseLayer(), writer));
+      instrumentation.encodeField(RkmField.MAP_IMAGE_TEXT, () -> writeImageLayer(RkmField.MAP_IMAGE_TEXT, map.textLayer(), writer));
+    } else {
+      instrumentation.encodeField(RkmField.MAP_IMAGE_BASE_PIXELS,
+          () -> writer.writeField(RkmField.MAP_IMAGE_BASE_PIXELS, PixelImages.encode(map.baseLayer(), options.imageEncoding())));
+      instrumentation.encodeField(RkmField.MAP_IMAGE_TEXT_PIXELS,
+          () -> writer.writeField(RkmField.MAP_IMAGE_TEXT_PIXELS, PixelImages.encode(map.textLayer(), options.imageEncoding())));
+    }
 
-    writeField(RkmField.CHECKSUM, MessageDigest.getInstance("SHA-512").digest(checksumBuilder.toByteArray()), outputStream);
-    if (shouldCloseStream) {
-      outputStream.close();
+    long checksummedLength = writer.position();
+    writer.writeChecksum();
+    instrumentation.checksumComputed(checksumAlgorithm, checksummedLength, writer.checksumNanos());
+    if (options.fieldIndex()) {
+      writer.writeFieldIndex();
     }
   }
 
-  private void writeSignature(OutputStream outputStream) throws IOException {
-    outputStream.write(signature); // 8 bytes
+  private void writeStringField(RkmField field, String string, RkmFieldWriter writer) throws IOException {
+    instrumentation.encodeField(field, () -> writer.writeField(field, string.getBytes(StandardCharsets.UTF_8)));
   }
 
-  private void writeField(RkmField field, byte[] data, OutputStream outputStream) throws IOException {
-    if (data.length < 1) {
-      throw new IllegalArgumentException("Invalid field length of " + data.length + ": field length must be greater than or equal to 1.");
+  private int writeVertices(Territory[] vertices, RkmFieldWriter writer) throws IOException {
+    FieldDataStream bos = new FieldDataStream();
+    DataOutputStream data = new DataOutputStream(bos);
+    data.writeInt(vertices.length);
+    for (Territory vertex : vertices) {
+      writeVertex(vertex, data);
     }
-    outputStream.write(field.fieldName()); // 4 bytes
-    outputStream.write(ByteBuffer.allocate(4).putInt(data.length).array()); // 4 bytes
-    outputStream.write(data); // fieldLength bytes
+    return writeGraphField(RkmField.VERTICES, writer, bos.data());
   }
 
-  private void writeVertices(Territory[] vertices, OutputStream outputStream) throws IOException {
-    outputStream.write(RkmField.VERTICES.fieldName()); // 4 bytes
-
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    for (Territory vertex : vertices) {
-      writeVertex(vertex, bos);
+  /**
+   * Writes a graph field, compressed if that is enabled and actually makes it smaller.
+   */
+  private int writeGraphField(RkmField field, RkmFieldWriter writer, ByteBuffer data) throws IOException {
+    if (options.compressGraph()) {
+      ByteBuffer compressed = FieldCompression.deflate(field, options.compressionLevel(), data);
+      if (compressed.remaining() < data.remaining()) {
+        return writer.writeField(RkmField.DEFLATED, compressed);
+      }
     }
-    byte[] verticesByteArray = bos.toByteArray();
-    bos.close();
-
-    outputStream.write(ByteBuffer.allocate(4).putInt(4 + verticesByteArray.length).array()); // 4 bytes
-    outputStream.write(ByteBuffer.allocate(4).putInt(vertices.length).array()); // 4 bytes
-    outputStream.write(verticesByteArray);
+    return writer.writeField(field, data);
   }
 
-  private void writeVertex(Territory vertex, OutputStream outputStream) throws IOException {
-    outputStream.write(ByteBuffer.allocate(4).putInt(vertex.identity().toString().length()).array()); // 4 bytes
-    outputStream.write(vertex.identity().toString().getBytes(StandardCharsets.UTF_8));
-    outputStream.write(ByteBuffer.allocate(4).putInt(vertex.nuclei().size()).array()); // 4 bytes
+  private void writeVertex(Territory vertex, DataOutputStream data) throws IOException {
+    writeString(vertex.identity().toString(), data);
+    data.writeInt(vertex.nuclei().size()); // 4 bytes
     for (Nucleus n : vertex.nuclei()) {
-      outputStream.write(ByteBuffer.allocate(4).putInt(n.x()).array());
-      outputStream.write(ByteBuffer.allocate(4).putInt(n.y()).array());
+      data.writeInt(n.x());
+      data.writeInt(n.y());
     }
   }
 
-  private void writeEdges(Border[] edges, OutputStream outputStream) throws IOException {
-    outputStream.write(RkmField.EDGES.fieldName()); // 4 bytes
-
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+  private int writeEdges(Border[] edges, RkmFieldWriter writer) throws IOException {
+    FieldDataStream bos = new FieldDataStream();
+    DataOutputStream data = new DataOutputStream(bos);
+    data.writeInt(edges.length);
     for (Border edge : edges) {
-      writeEdge(edge, bos);
+      writeEdge(edge, data);
     }
-    byte[] edgesByteArray = bos.toByteArray();
-    bos.close();
-
-    outputStream.write(ByteBuffer.allocate(4).putInt(4 + edgesByteArray.length).array()); // 4 bytes
-    outputStream.write(ByteBuffer.allocate(4).putInt(edges.length).array()); // 4 bytes
-    outputStream.write(edgesByteArray);
+    return writeGraphField(RkmField.EDGES, writer, bos.data());
   }
 
-  private void writeEdge(Border edge, OutputStream outputStream) throws IOException {
-    outputStream.write(ByteBuffer.allocate(4).putInt(edge.source().toString().length()).array()); // 4 bytes
-    outputStream.write(edge.source().toString().getBytes(StandardCharsets.UTF_8));
-    outputStream.write(ByteBuffer.allocate(4).putInt(edge.target().toString().length()).array()); // 4 bytes
-    outputStream.write(edge.target().toString().getBytes(StandardCharsets.UTF_8));
+  private void writeEdge(Border edge, DataOutputStream data) throws IOException {
+    writeString(edge.source().toString(), data);
+    writeString(edge.target().toString(), data);
   }
 
-  private void writeBaseImageLayer(BufferedImage image, OutputStream outputStream) throws IOException {
-    outputStream.write(RkmField.MAP_IMAGE_BASE.fieldName()); // 4 bytes
+  private int writeIndexedEdges(Territory[] vertices, Border[] edges, RkmFieldWriter writer) throws IOException {
+    Map<TerritoryIdentity, Integer> vertexIndices = new HashMap<>();
+    for (int i = 0; i < vertices.length; i++) {
+      vertexIndices.putIfAbsent(vertices[i].identity(), i);
+    }
 
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    ImageIO.write(image, "png", bos);
-    byte[] imageData = bos.toByteArray();
-    bos.close();
+    FieldDataStream bos = new FieldDataStream();
+    new DataOutputStream(bos).writeInt(edges.length);
+    for (Border edge : edges) {
+      Varints.write(vertexIndex(edge.source(), vertexIndices), bos);
+      Varints.write(vertexIndex(edge.target(), vertexIndices), bos);
+    }
+    return writeGraphField(RkmField.EDGES_INDEXED, writer, bos.data());
+  }
 
-    outputStream.write(ByteBuffer.allocate(4).putInt(imageData.length).array()); // 4 bytes
-    outputStream.write(imageData); // fieldLength bytes
+  private int vertexIndex(TerritoryIdentity identity, Map<TerritoryIdentity, Integer> vertexIndices) {
+    Integer index = vertexIndices.get(identity);
+    if (index == null) {
+      throw new IllegalArgumentException("edge refers to a territory that is not a vertex: " + identity);
+    }
+    return index;
   }
 
-  private void writeTextImageLayer(BufferedImage image, OutputStream outputStream) throws IOException {
-    outputStream.write(RkmField.MAP_IMAGE_TEXT.fieldName()); // 4 bytes
+  private void writeString(String string, DataOutputStream data) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    data.writeInt(bytes.length); // 4 bytes
+    data.write(bytes);
+  }
 
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    ImageIO.write(image, "png", bos);
-    byte[] imageData = bos.toByteArray();
-    bos.close();
+  private int writeImageLayer(RkmField field, BufferedImage image, RkmFieldWriter writer) throws IOException {
+    byte[] encoded = EncodedImages.find(image); // Present if the image was decoded with retained image data and has not been modified since.
+    if (encoded != null) {
+      return writer.writeField(field, encoded);
+    }
 
-    outputStream.write(ByteBuffer.allocate(4).putInt(imageData.length).array()); // 4 bytes
-    outputStream.write(imageData); // fieldLength bytes
+    FieldDataStream bos = new FieldDataStream();
+    ImageIO.write(image, "png", bos);
+    return writer.writeField(field, bos.data());
   }
 
 }
@@ -0,0 +1,155 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+import com.riskrieg.codec.CodecListener;
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import com.riskrieg.codec.RkmImageEncoding;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+public final class RkmEncoderOptions {
+
+  private final boolean fieldIndex;
+  private final boolean indexedEdges;
+  private final RkmChecksumAlgorithm checksumAlgorithm;
+  private final CodecListener listener;
+  private final boolean compressGraph;
+  private final int compressionLevel;
+  private final RkmImageEncoding imageEncoding;
+
+  private RkmEncoderOptions(Builder builder) {
+    this.fieldIndex = builder.fieldIndex;
+    this.indexedEdges = builder.indexedEdges;
+    this.checksumAlgorithm = builder.checksumAlgorithm;
+    this.listener = builder.listener;
+    this.compressGraph = builder.compressGraph;
+    this.compressionLevel = builder.compressionLevel;
+    this.imageEncoding = builder.imageEncoding;
+  }
+
+  public static RkmEncoderOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return whether a {@link com.riskrieg.codec.RkmField#FIELD_INDEX} field is written after the checksum
+   */
+  public boolean fieldIndex() {
+    return fieldIndex;
+  }
+
+  /**
+   * @return whether edges are written as a {@link com.riskrieg.codec.RkmField#EDGES_INDEXED} field rather than a {@link com.riskrieg.codec.RkmField#EDGES} field
+   */
+  public boolean indexedEdges() {
+    return indexedEdges;
+  }
+
+  /**
+   * @return the checksum algorithm, which is declared in a {@link com.riskrieg.codec.RkmField#CHECKSUM_ALGORITHM} field unless it is SHA-512
+   */
+  public RkmChecksumAlgorithm checksumAlgorithm() {
+    return checksumAlgorithm;
+  }
+
+  public CodecListener listener() {
+    return listener;
+  }
+
+  /**
+   * @return whether the vertices and edges fields are wrapped in {@link com.riskrieg.codec.RkmField#DEFLATED} fields, which is only done when that makes them smaller
+   */
+  public boolean compressGraph() {
+    return compressGraph;
+  }
+
+  /**
+   * @return the DEFLATE compression level, from 0 to 9, or -1 for the default level
+   */
+  public int compressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @return how the image layers are stored, which is PNG by default
+   */
+  public RkmImageEncoding imageEncoding() {
+    return imageEncoding;
+  }
+
+  public static final class Builder {
+
+    private boolean fieldIndex = false;
+    private boolean indexedEdges = false;
+    private RkmChecksumAlgorithm checksumAlgorithm = RkmChecksumAlgorithm.SHA_512;
+    private CodecListener listener = CodecListener.NONE;
+    private boolean compressGraph = false;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private RkmImageEncoding imageEncoding = RkmImageEncoding.PNG;
+
+    private Builder() {
+    }
+
+    public Builder setFieldIndex(boolean fieldIndex) {
+      this.fieldIndex = fieldIndex;
+      return this;
+    }
+
+    public Builder setIndexedEdges(boolean indexedEdges) {
+      this.indexedEdges = indexedEdges;
+      return this;
+    }
+
+    public Builder setChecksumAlgorithm(@NonNull RkmChecksumAlgorithm checksumAlgorithm) {
+      this.checksumAlgorithm = Objects.requireNonNull(checksumAlgorithm);
+      return this;
+    }
+
+    /**
+     * Sets the listener that per-field timings, checksum time and per-map totals are reported to.
+     */
+    public Builder setListener(@NonNull CodecListener listener) {
+      this.listener = Objects.requireNonNull(listener);
+      return this;
+    }
+
+    public Builder setCompressGraph(boolean compressGraph) {
+      this.compressGraph = compressGraph;
+      return this;
+    }
+
+    public Builder setCompressionLevel(int compressionLevel) {
+      if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+        throw new IllegalArgumentException("compression level must be between 0 and 9, or -1 for the default level");
+      }
+      this.compressionLevel = compressionLevel;
+      return this;
+    }
+
+    /**
+     * Sets how the image layers are stored. Anything but PNG makes files larger in exchange for loading the images without decompressing them, and requires a decoder that
+     * supports the {@link com.riskrieg.codec.RkmField#MAP_IMAGE_BASE_PIXELS} and {@link com.riskrieg.codec.RkmField#MAP_IMAGE_TEXT_PIXELS} fields.
+     */
+    public Builder setImageEncoding(@NonNull RkmImageEncoding imageEncoding) {
+      this.imageEncoding = Objects.requireNonNull(imageEncoding);
+      return this;
+    }
+
+    public RkmEncoderOptions build() {
+      return new RkmEncoderOptions(this);
+    }
+
+  }
+
+}
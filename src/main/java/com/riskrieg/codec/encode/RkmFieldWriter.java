@@ -0,0 +1,130 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.RkmIndex;
+import com.riskrieg.codec.internal.checksum.RunningChecksum;
+import com.riskrieg.codec.internal.io.FieldOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes the [field-name][length-in-bytes][data] records of an .rkm file, updating the checksum with everything written before the checksum field and keeping track of
+ * where each field was written. The header and data of each field are passed to the output in a single write.
+ */
+final class RkmFieldWriter {
+
+  private final FieldOutput output;
+  private final RunningChecksum checksum;
+  private final List<RkmIndex.Entry> entries = new ArrayList<>();
+  private long position;
+  private long checksumNanos;
+
+  RkmFieldWriter(FieldOutput output, RunningChecksum checksum) {
+    this.output = Objects.requireNonNull(output);
+    this.checksum = Objects.requireNonNull(checksum);
+  }
+
+  void writeSignature(byte[] signature) throws IOException {
+    writeChecksummed(ByteBuffer.wrap(signature)); // 8 bytes
+  }
+
+  /**
+   * Writes a single field whose data is the concatenation of the given parts.
+   *
+   * @return the length in bytes of the field data
+   */
+  int writeField(RkmField field, byte[]... parts) throws IOException {
+    ByteBuffer[] buffers = new ByteBuffer[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      buffers[i] = ByteBuffer.wrap(parts[i]);
+    }
+    return writeField(field, buffers);
+  }
+
+  /**
+   * Writes a single field whose data is the concatenation of the remaining bytes of the given parts, which are consumed.
+   *
+   * @return the length in bytes of the field data
+   */
+  int writeField(RkmField field, ByteBuffer... parts) throws IOException {
+    int length = 0;
+    for (ByteBuffer part : parts) {
+      length = Math.addExact(length, part.remaining());
+    }
+    if (length < 1) {
+      throw new IllegalArgumentException("Invalid field length of " + length + ": field length must be greater than or equal to 1.");
+    }
+    entries.add(new RkmIndex.Entry(field.fieldName(), position, length));
+    ByteBuffer[] buffers = new ByteBuffer[parts.length + 1];
+    buffers[0] = header(field, length); // 8 bytes
+    System.arraycopy(parts, 0, buffers, 1, parts.length); // fieldLength bytes
+    writeChecksummed(buffers);
+    return length;
+  }
+
+  /**
+   * Writes the checksum of everything written so far. This must be the last checksummed field.
+   */
+  void writeChecksum() throws IOException {
+    long start = System.nanoTime();
+    byte[] checksumData = checksum.finish();
+    checksumNanos += System.nanoTime() - start;
+    entries.add(new RkmIndex.Entry(RkmField.CHECKSUM.fieldName(), position, checksumData.length));
+    write(header(RkmField.CHECKSUM, checksumData.length), ByteBuffer.wrap(checksumData));
+  }
+
+  /**
+   * Writes a {@link RkmField#FIELD_INDEX} field covering every field written so far. This must come after the checksum.
+   */
+  void writeFieldIndex() throws IOException {
+    byte[] data = new RkmIndex(entries).toFieldData(position);
+    write(header(RkmField.FIELD_INDEX, data.length), ByteBuffer.wrap(data));
+  }
+
+  /**
+   * @return the number of bytes written so far
+   */
+  long position() {
+    return position;
+  }
+
+  /**
+   * @return the time spent hashing so far
+   */
+  long checksumNanos() {
+    return checksumNanos;
+  }
+
+  private ByteBuffer header(RkmField field, int length) {
+    return ByteBuffer.allocate(4 + 4).put(field.fieldName()).putInt(length).flip();
+  }
+
+  private void writeChecksummed(ByteBuffer... buffers) throws IOException {
+    long start = System.nanoTime();
+    for (ByteBuffer buffer : buffers) {
+      checksum.update(buffer.duplicate());
+    }
+    checksumNanos += System.nanoTime() - start;
+    write(buffers);
+  }
+
+  private void write(ByteBuffer... buffers) throws IOException {
+    long length = 0;
+    for (ByteBuffer buffer : buffers) {
+      length += buffer.remaining();
+    }
+    output.write(buffers);
+    position += length; // Only counted once written, so a failed write is not included.
+  }
+
+}
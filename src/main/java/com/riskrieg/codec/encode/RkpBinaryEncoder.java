@@ -0,0 +1,77 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+import com.riskrieg.codec.RkpField;
+import com.riskrieg.palette.RkpColor;
+import com.riskrieg.palette.RkpPalette;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes palettes in the binary .rkp format described by {@link RkpField}. {@link com.riskrieg.codec.decode.RkpDecoder} detects this format automatically.
+ */
+public final class RkpBinaryEncoder implements Encoder<RkpPalette> {
+
+  // 8B: File signature. HEX: 83 52 4B 50 0D 0A 1A 0A -- \131 R K P \r \n \032 \n
+  private final byte[] signature = new byte[]{(byte) 0x83, (byte) 0x52, (byte) 0x4B, (byte) 0x50, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
+
+  @Override
+  public void encode(RkpPalette object, OutputStream outputStream, boolean shouldCloseStream) throws IOException {
+    Objects.requireNonNull(object);
+    Objects.requireNonNull(outputStream);
+
+    // Palettes are small, so the whole file is built in memory and handed to the stream in a single write.
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    DataOutputStream data = new DataOutputStream(buffer);
+    data.write(signature);
+    writeField(data, RkpField.PALETTE_NAME, object.name().getBytes(StandardCharsets.UTF_8));
+    writeField(data, RkpField.COLORS, encodeColors(object));
+
+    CRC32C checksum = new CRC32C();
+    checksum.update(buffer.toByteArray());
+    writeField(data, RkpField.CHECKSUM, ByteBuffer.allocate(4).putInt((int) checksum.getValue()).array());
+
+    buffer.writeTo(outputStream);
+    if (shouldCloseStream) {
+      outputStream.close();
+    }
+  }
+
+  private void writeField(DataOutputStream data, RkpField field, byte[] fieldData) throws IOException {
+    if (fieldData.length < 1) {
+      throw new IllegalArgumentException("Invalid field length of " + fieldData.length + ": field length must be greater than or equal to 1.");
+    }
+    data.write(field.fieldName()); // 4 bytes
+    data.writeInt(fieldData.length); // 4 bytes
+    data.write(fieldData); // fieldLength bytes
+  }
+
+  private byte[] encodeColors(RkpPalette palette) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(4 + palette.sortedColorSet().size() * 24);
+    DataOutputStream data = new DataOutputStream(buffer);
+    data.writeInt(palette.sortedColorSet().size());
+    for (RkpColor color : palette.sortedColorSet()) {
+      byte[] name = color.name().getBytes(StandardCharsets.UTF_8);
+      data.writeInt(color.order());
+      data.writeInt(name.length);
+      data.write(name);
+      data.writeByte(color.r());
+      data.writeByte(color.g());
+      data.writeByte(color.b());
+    }
+    return buffer.toByteArray();
+  }
+
+}
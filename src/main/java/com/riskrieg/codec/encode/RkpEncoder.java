@@ -11,12 +11,23 @@ import com.riskrieg.codec.internal.json.JsonHelper;
 import com.riskrieg.palette.RkpPalette;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Objects;
 
 public final class RkpEncoder implements Encoder<RkpPalette> {
 
+  private final RkpEncoderOptions options;
+
+  public RkpEncoder() {
+    this(RkpEncoderOptions.defaults());
+  }
+
+  public RkpEncoder(RkpEncoderOptions options) {
+    this.options = Objects.requireNonNull(options);
+  }
+
   @Override
   public void encode(RkpPalette object, OutputStream outputStream, boolean shouldCloseStream) throws IOException {
-    JsonHelper.write(outputStream, RkpPalette.class, object);
+    JsonHelper.write(outputStream, RkpPalette.class, object, options.prettyPrint());
     if (shouldCloseStream) {
       outputStream.close();
     }
@@ -0,0 +1,51 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.encode;
+
+public final class RkpEncoderOptions {
+
+  private final boolean prettyPrint;
+
+  private RkpEncoderOptions(Builder builder) {
+    this.prettyPrint = builder.prettyPrint;
+  }
+
+  public static RkpEncoderOptions defaults() {
+    return builder().build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @return whether the palette is written as indented JSON rather than compact JSON
+   */
+  public boolean prettyPrint() {
+    return prettyPrint;
+  }
+
+  public static final class Builder {
+
+    private boolean prettyPrint = true;
+
+    private Builder() {
+    }
+
+    public Builder setPrettyPrint(boolean prettyPrint) {
+      this.prettyPrint = prettyPrint;
+      return this;
+    }
+
+    public RkpEncoderOptions build() {
+      return new RkpEncoderOptions(this);
+    }
+
+  }
+
+}
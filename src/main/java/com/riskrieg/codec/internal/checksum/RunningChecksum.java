@@ -0,0 +1,88 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.checksum;
+
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32C;
+
+/**
+ * A checksum that is computed incrementally over the data it is given.
+ */
+public abstract sealed class RunningChecksum permits RunningChecksum.Digest, RunningChecksum.Crc32c {
+
+  private RunningChecksum() {
+  }
+
+  public static RunningChecksum of(RkmChecksumAlgorithm algorithm) throws NoSuchAlgorithmException {
+    return switch (algorithm) {
+      case SHA_512 -> new Digest(MessageDigest.getInstance(algorithm.algorithmName()));
+      case CRC32C -> new Crc32c();
+    };
+  }
+
+  /**
+   * Updates the checksum with the remaining bytes of the buffer, which are consumed.
+   */
+  public abstract void update(ByteBuffer data);
+
+  public void update(byte[] data) {
+    update(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * @return the checksum of everything given so far, after which this checksum is reset
+   */
+  public abstract byte[] finish();
+
+  static final class Digest extends RunningChecksum {
+
+    private final MessageDigest digest;
+
+    private Digest(MessageDigest digest) {
+      this.digest = digest;
+    }
+
+    @Override
+    public void update(ByteBuffer data) {
+      digest.update(data);
+    }
+
+    @Override
+    public void update(byte[] data) {
+      digest.update(data);
+    }
+
+    @Override
+    public byte[] finish() {
+      return digest.digest();
+    }
+
+  }
+
+  static final class Crc32c extends RunningChecksum {
+
+    private final CRC32C crc = new CRC32C();
+
+    @Override
+    public void update(ByteBuffer data) {
+      crc.update(data);
+    }
+
+    @Override
+    public byte[] finish() {
+      byte[] result = ByteBuffer.allocate(4).putInt((int) crc.getValue()).array();
+      crc.reset();
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,37 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The executor used for concurrent work when the caller does not supply one. This uses virtual threads when the runtime supports them, and the common fork-join pool otherwise.
+ */
+public final class DefaultExecutor {
+
+  private static final Executor INSTANCE = create();
+
+  private DefaultExecutor() {
+  }
+
+  public static Executor get() {
+    return INSTANCE;
+  }
+
+  private static Executor create() {
+    try {
+      // Looked up reflectively since virtual threads are not available in Java 17, which this library targets.
+      return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return ForkJoinPool.commonPool();
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.image;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the encoded bytes that decoded images were read from, so that an image which has not been modified since it was decoded can be written back out without
+ * encoding it again. Entries are held weakly and disappear along with their images.
+ * <p>
+ * Since a {@link BufferedImage} can be modified at any time, each entry also records a SHA-256 fingerprint of the image's pixel data, and the encoded bytes are only handed
+ * back while the fingerprint still matches. The pixels are read a row at a time through the raster rather than by taking its bank arrays, which would stop Java2D from
+ * accelerating the image.
+ */
+public final class EncodedImages {
+
+  private static final Map<BufferedImage, Entry> entries = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private EncodedImages() {
+  }
+
+  private record Entry(byte[] encoded, byte[] fingerprint) {
+
+  }
+
+  /**
+   * Records the bytes that the image was decoded from. Images whose pixel data cannot be fingerprinted are not recorded.
+   */
+  public static void retain(BufferedImage image, byte[] encoded) {
+    byte[] fingerprint = fingerprint(image);
+    if (fingerprint != null) {
+      entries.put(image, new Entry(encoded, fingerprint));
+    }
+  }
+
+  /**
+   * @return the bytes that the image was decoded from, or null if there are none or the image has been modified since it was decoded
+   */
+  @Nullable
+  public static byte[] find(BufferedImage image) {
+    Entry entry = entries.get(image);
+    if (entry == null) {
+      return null;
+    }
+    byte[] fingerprint = fingerprint(image);
+    if (fingerprint == null || !MessageDigest.isEqual(fingerprint, entry.fingerprint())) {
+      entries.remove(image);
+      return null;
+    }
+    return entry.encoded();
+  }
+
+  @Nullable
+  private static byte[] fingerprint(BufferedImage image) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    digest.update(ByteBuffer.allocate(12).putInt(image.getWidth()).putInt(image.getHeight()).putInt(image.getType()).flip());
+
+    Raster raster = image.getRaster();
+    int width = raster.getWidth();
+    Object row = null;
+    ByteBuffer chunk = null;
+    for (int y = 0; y < raster.getHeight(); y++) {
+      row = raster.getDataElements(raster.getMinX(), raster.getMinY() + y, width, 1, row);
+      if (row instanceof byte[] bytes) {
+        digest.update(bytes);
+        continue;
+      }
+      if (chunk == null) {
+        chunk = ByteBuffer.allocate(width * raster.getNumDataElements() * 8);
+      }
+      chunk.clear();
+      if (row instanceof int[] ints) {
+        chunk.asIntBuffer().put(ints);
+        chunk.limit(ints.length * 4);
+      } else if (row instanceof short[] shorts) {
+        chunk.asShortBuffer().put(shorts);
+        chunk.limit(shorts.length * 2);
+      } else if (row instanceof float[] floats) {
+        chunk.asFloatBuffer().put(floats);
+        chunk.limit(floats.length * 4);
+      } else if (row instanceof double[] doubles) {
+        chunk.asDoubleBuffer().put(doubles);
+        chunk.limit(doubles.length * 8);
+      } else {
+        return null;
+      }
+      digest.update(chunk);
+    }
+    return digest.digest();
+  }
+
+}
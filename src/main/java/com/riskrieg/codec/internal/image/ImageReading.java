@@ -0,0 +1,59 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.image;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes part of an image, or a subsampled version of it, through an {@link ImageReader} so that the skipped pixels are never stored.
+ */
+public final class ImageReading {
+
+  private ImageReading() {
+  }
+
+  /**
+   * Like {@link ImageIO#read(ImageInputStream)}, this closes the stream and returns null if no registered reader can decode it.
+   *
+   * @param sourceRegion the part of the image to decode, which is clipped to the bounds of the image, or null to decode all of it
+   */
+  @Nullable
+  public static BufferedImage read(ImageInputStream input, @Nullable Rectangle sourceRegion, int xSubsampling, int ySubsampling) throws IOException {
+    try (input) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (sourceRegion != null) {
+          Rectangle clipped = sourceRegion.intersection(new Rectangle(reader.getWidth(0), reader.getHeight(0)));
+          if (clipped.isEmpty()) {
+            throw new IllegalArgumentException("image source region does not overlap the image");
+          }
+          param.setSourceRegion(clipped);
+        }
+        param.setSourceSubsampling(xSubsampling, ySubsampling, 0, 0);
+        return reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,217 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.image;
+
+import com.riskrieg.codec.RkmField;
+import com.riskrieg.codec.RkmImageEncoding;
+import com.riskrieg.codec.internal.io.Varints;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes and decodes the data of the {@link RkmField#MAP_IMAGE_BASE_PIXELS} and {@link RkmField#MAP_IMAGE_TEXT_PIXELS} fields. Images are always decoded as
+ * {@link BufferedImage#TYPE_INT_ARGB}, and the pixels are written straight into the image's backing array.
+ */
+public final class PixelImages {
+
+  private static final byte FORMAT_ARGB = 0;
+  private static final byte FORMAT_INDEXED_RUN_LENGTH = 1;
+
+  private static final int HEADER_LENGTH = 1 + 4 + 4;
+
+  private PixelImages() {
+  }
+
+  public static byte[] encode(BufferedImage image, RkmImageEncoding encoding) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+    return switch (encoding) {
+      case ARGB -> {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + pixels.length * 4);
+        buffer.put(FORMAT_ARGB).putInt(width).putInt(height);
+        buffer.asIntBuffer().put(pixels);
+        yield buffer.array();
+      }
+      case INDEXED_RUN_LENGTH -> encodeIndexedRunLength(width, height, pixels);
+      case PNG -> throw new IllegalArgumentException("PNG images are not stored as pixels");
+    };
+  }
+
+  private static byte[] encodeIndexedRunLength(int width, int height, int[] pixels) throws IOException {
+    Map<Integer, Integer> colorIndices = new HashMap<>();
+    ByteArrayOutputStream runs = new ByteArrayOutputStream();
+    int i = 0;
+    while (i < pixels.length) {
+      int color = pixels[i];
+      int end = i + 1;
+      while (end < pixels.length && pixels[end] == color) {
+        end++;
+      }
+      Integer index = colorIndices.get(color);
+      if (index == null) {
+        index = colorIndices.size();
+        colorIndices.put(color, index);
+      }
+      Varints.write(end - i, runs);
+      Varints.write(index, runs);
+      i = end;
+    }
+
+    int[] palette = new int[colorIndices.size()];
+    colorIndices.forEach((color, index) -> palette[index] = color);
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + 4 + palette.length * 4 + runs.size());
+    buffer.put(FORMAT_INDEXED_RUN_LENGTH).putInt(width).putInt(height).putInt(palette.length);
+    for (int color : palette) {
+      buffer.putInt(color);
+    }
+    buffer.put(runs.toByteArray());
+    return buffer.array();
+  }
+
+  /**
+   * @param sourceRegion the part of the image to decode, which is clipped to the bounds of the image, or null to decode all of it
+   */
+  public static BufferedImage decode(ByteBuffer data, @Nullable Rectangle sourceRegion, int xSubsampling, int ySubsampling) {
+    if (data.limit() < HEADER_LENGTH) {
+      throw new IllegalArgumentException("pixel image field is too short");
+    }
+    byte format = data.get(0);
+    int width = data.getInt(1);
+    int height = data.getInt(5);
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("pixel image dimensions must be greater than or equal to 1");
+    } else if ((long) width * height > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("pixel image is too large");
+    }
+
+    Rectangle bounds = new Rectangle(width, height);
+    Rectangle region = sourceRegion == null ? bounds : sourceRegion.intersection(bounds);
+    if (region.isEmpty()) {
+      throw new IllegalArgumentException("image source region does not overlap the image");
+    }
+    Target target = new Target(region, xSubsampling, ySubsampling);
+
+    ByteBuffer pixelData = data.slice(HEADER_LENGTH, data.limit() - HEADER_LENGTH);
+    switch (format) {
+      case FORMAT_ARGB -> decodeArgb(pixelData, width, height, target);
+      case FORMAT_INDEXED_RUN_LENGTH -> decodeIndexedRunLength(pixelData, width, height, target);
+      default -> throw new IllegalArgumentException("unsupported pixel format: " + format);
+    }
+    return target.image;
+  }
+
+  private static void decodeArgb(ByteBuffer data, int width, int height, Target target) {
+    if ((long) width * height * 4 != data.limit()) {
+      throw new IllegalArgumentException("pixel data length does not match the image dimensions");
+    }
+    if (target.isWholeImage(width, height)) {
+      data.asIntBuffer().get(target.pixels); // A single bulk copy.
+      return;
+    }
+    Rectangle region = target.region;
+    int index = 0;
+    for (int y = region.y; y < region.y + region.height; y += target.ySubsampling) {
+      for (int x = region.x; x < region.x + region.width; x += target.xSubsampling) {
+        target.pixels[index++] = data.getInt((y * width + x) * 4);
+      }
+    }
+  }
+
+  private static void decodeIndexedRunLength(ByteBuffer data, int width, int height, Target target) {
+    ByteBuffer buffer = data.duplicate();
+    int colorCount = buffer.getInt();
+    if (colorCount < 0 || colorCount > buffer.remaining() / 4) {
+      throw new IllegalArgumentException("pixel palette is longer than the remaining bytes in the field");
+    }
+    int[] palette = new int[colorCount];
+    buffer.asIntBuffer().get(palette);
+    buffer.position(buffer.position() + colorCount * 4);
+
+    long pixelCount = (long) width * height;
+    boolean wholeImage = target.isWholeImage(width, height);
+    long position = 0;
+    while (position < pixelCount) {
+      int runLength = Varints.read(buffer);
+      int colorIndex = Varints.read(buffer);
+      if (runLength < 1 || runLength > pixelCount - position) {
+        throw new IllegalArgumentException("pixel run length does not fit in the image");
+      } else if (colorIndex >= colorCount) {
+        throw new IllegalArgumentException("pixel color index does not exist in the palette");
+      }
+      if (wholeImage) {
+        Arrays.fill(target.pixels, (int) position, (int) position + runLength, palette[colorIndex]);
+      } else {
+        target.fill(position, runLength, width, palette[colorIndex]);
+      }
+      position += runLength;
+    }
+    if (buffer.hasRemaining()) {
+      throw new IllegalArgumentException("pixel data is longer than the image");
+    }
+  }
+
+  /**
+   * The image being decoded into, which covers the source region after subsampling.
+   */
+  private static final class Target {
+
+    private final Rectangle region;
+    private final int xSubsampling;
+    private final int ySubsampling;
+    private final int width;
+    private final BufferedImage image;
+    private final int[] pixels;
+
+    private Target(Rectangle region, int xSubsampling, int ySubsampling) {
+      this.region = region;
+      this.xSubsampling = xSubsampling;
+      this.ySubsampling = ySubsampling;
+      this.width = (region.width + xSubsampling - 1) / xSubsampling;
+      int height = (region.height + ySubsampling - 1) / ySubsampling;
+      this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private boolean isWholeImage(int sourceWidth, int sourceHeight) {
+      return region.x == 0 && region.y == 0 && region.width == sourceWidth && region.height == sourceHeight && xSubsampling == 1 && ySubsampling == 1;
+    }
+
+    /**
+     * Sets every target pixel that is sampled from the given run of source pixels.
+     */
+    private void fill(long start, int length, int sourceWidth, int color) {
+      long end = start + length;
+      long rowStart = start - start % sourceWidth;
+      for (long row = rowStart; row < end; row += sourceWidth) {
+        int y = (int) (row / sourceWidth);
+        if (y < region.y || y >= region.y + region.height || (y - region.y) % ySubsampling != 0) {
+          continue;
+        }
+        // The part of this row covered by the run, intersected with the region.
+        int fromX = (int) Math.max(region.x, Math.max(start, row) - row);
+        int toX = (int) Math.min(region.x + region.width, Math.min(end, row + sourceWidth) - row);
+        int firstSample = fromX <= region.x ? region.x : region.x + ((fromX - region.x + xSubsampling - 1) / xSubsampling) * xSubsampling;
+        int targetRow = (y - region.y) / ySubsampling * width;
+        for (int x = firstSample; x < toX; x += xSubsampling) {
+          pixels[targetRow + (x - region.x) / xSubsampling] = color;
+        }
+      }
+    }
+
+  }
+
+}
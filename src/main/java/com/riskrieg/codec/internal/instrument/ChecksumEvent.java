@@ -0,0 +1,40 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The checksum is computed incrementally while the fields are read or written, so the time spent hashing is recorded as a field rather than as the duration of the event.
+ */
+@Name("com.riskrieg.codec.Checksum")
+@Label("Checksum")
+@Category({"Riskrieg", "Codec"})
+@Description("The checksum of an .rkm file was computed.")
+@StackTrace(false)
+final class ChecksumEvent extends Event {
+
+  @Label("Algorithm")
+  String algorithm;
+
+  @Label("Length")
+  @DataAmount
+  long lengthInBytes;
+
+  @Label("Hashing Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long hashingDuration;
+
+}
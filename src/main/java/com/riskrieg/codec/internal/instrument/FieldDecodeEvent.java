@@ -0,0 +1,36 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.riskrieg.codec.FieldDecode")
+@Label("Field Decode")
+@Category({"Riskrieg", "Codec"})
+@Description("A single .rkm field was decoded. For the image layer fields, this is the image decoding.")
+@StackTrace(false)
+final class FieldDecodeEvent extends Event {
+
+  @Label("Field")
+  String field;
+
+  @Label("Length")
+  @DataAmount
+  long lengthInBytes;
+
+  @Label("Failure")
+  @Description("The exception the work failed with, or null if it succeeded")
+  String failure;
+
+}
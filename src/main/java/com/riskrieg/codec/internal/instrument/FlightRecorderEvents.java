@@ -0,0 +1,92 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import jdk.jfr.Event;
+
+/**
+ * The only place the event classes are used. Events are passed around as plain objects so that {@link Instrumentation} never refers to a jdk.jfr type, and this class is
+ * only loaded when the jdk.jfr module is present.
+ */
+final class FlightRecorderEvents {
+
+  private FlightRecorderEvents() {
+  }
+
+  static Object beginFieldDecode() {
+    return begin(new FieldDecodeEvent());
+  }
+
+  static Object beginFieldEncode() {
+    return begin(new FieldEncodeEvent());
+  }
+
+  static Object beginMapDecode() {
+    return begin(new MapDecodeEvent());
+  }
+
+  static Object beginMapEncode() {
+    return begin(new MapEncodeEvent());
+  }
+
+  private static Event begin(Event event) {
+    event.begin();
+    return event;
+  }
+
+  static void commitField(Object event, String field, int lengthInBytes, String failure) {
+    if (event instanceof FieldDecodeEvent decodeEvent) {
+      decodeEvent.end();
+      if (decodeEvent.shouldCommit()) {
+        decodeEvent.field = field;
+        decodeEvent.lengthInBytes = lengthInBytes;
+        decodeEvent.failure = failure;
+        decodeEvent.commit();
+      }
+    } else if (event instanceof FieldEncodeEvent encodeEvent) {
+      encodeEvent.end();
+      if (encodeEvent.shouldCommit()) {
+        encodeEvent.field = field;
+        encodeEvent.lengthInBytes = lengthInBytes;
+        encodeEvent.failure = failure;
+        encodeEvent.commit();
+      }
+    }
+  }
+
+  static void commitMap(Object event, long lengthInBytes, long allocatedBytes, String failure) {
+    if (event instanceof MapDecodeEvent decodeEvent) {
+      decodeEvent.end();
+      if (decodeEvent.shouldCommit()) {
+        decodeEvent.lengthInBytes = lengthInBytes;
+        decodeEvent.allocatedBytes = allocatedBytes;
+        decodeEvent.failure = failure;
+        decodeEvent.commit();
+      }
+    } else if (event instanceof MapEncodeEvent encodeEvent) {
+      encodeEvent.end();
+      if (encodeEvent.shouldCommit()) {
+        encodeEvent.lengthInBytes = lengthInBytes;
+        encodeEvent.allocatedBytes = allocatedBytes;
+        encodeEvent.failure = failure;
+        encodeEvent.commit();
+      }
+    }
+  }
+
+  static void commitChecksum(String algorithm, long lengthInBytes, long durationNanos) {
+    ChecksumEvent event = new ChecksumEvent();
+    if (event.shouldCommit()) {
+      event.algorithm = algorithm;
+      event.lengthInBytes = lengthInBytes;
+      event.hashingDuration = durationNanos;
+      event.commit();
+    }
+  }
+
+}
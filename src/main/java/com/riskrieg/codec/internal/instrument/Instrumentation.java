@@ -0,0 +1,177 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import com.riskrieg.codec.CodecListener;
+import com.riskrieg.codec.RkmChecksumAlgorithm;
+import com.riskrieg.codec.RkmField;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Reports measurements to a {@link CodecListener} and records them as JDK Flight Recorder events.
+ * <p>
+ * Neither jdk.jfr nor jdk.management is required at runtime. Flight Recorder events are only recorded when the jdk.jfr module is present, and allocation is reported as -1
+ * when the jdk.management module is missing. The classes that use those modules are only loaded once the check has passed.
+ */
+public final class Instrumentation {
+
+  private static final boolean flightRecorder = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+  private static final boolean threadAllocation = ModuleLayer.boot().findModule("jdk.management").isPresent();
+
+  private final CodecListener listener;
+
+  public Instrumentation(CodecListener listener) {
+    this.listener = Objects.requireNonNull(listener);
+  }
+
+  @FunctionalInterface
+  public interface DecodeWork<T> {
+
+    T decode() throws IOException;
+
+  }
+
+  @FunctionalInterface
+  public interface EncodeWork {
+
+    /**
+     * @return the length in bytes of the data that was written
+     */
+    int encode() throws IOException;
+
+  }
+
+  /**
+   * Measures the work whether or not it succeeds, so a failed field is recorded along with its exception.
+   */
+  public <T> T decodeField(RkmField field, int lengthInBytes, DecodeWork<T> work) throws IOException {
+    Object event = flightRecorder ? FlightRecorderEvents.beginFieldDecode() : null;
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = work.decode();
+    } catch (Throwable t) {
+      long duration = System.nanoTime() - start;
+      commit(event, field, lengthInBytes, t);
+      listener.fieldDecodeFailed(field, lengthInBytes, duration, t);
+      throw t;
+    }
+    long duration = System.nanoTime() - start;
+    commit(event, field, lengthInBytes, null);
+    listener.fieldDecoded(field, lengthInBytes, duration);
+    return result;
+  }
+
+  /**
+   * Measures the work whether or not it succeeds, so a failed field is recorded along with its exception.
+   */
+  public void encodeField(RkmField field, EncodeWork work) throws IOException {
+    Object event = flightRecorder ? FlightRecorderEvents.beginFieldEncode() : null;
+    long start = System.nanoTime();
+    int lengthInBytes;
+    try {
+      lengthInBytes = work.encode();
+    } catch (Throwable t) {
+      long duration = System.nanoTime() - start;
+      commit(event, field, 0, t);
+      listener.fieldEncodeFailed(field, duration, t);
+      throw t;
+    }
+    long duration = System.nanoTime() - start;
+    commit(event, field, lengthInBytes, null);
+    listener.fieldEncoded(field, lengthInBytes, duration);
+  }
+
+  private static void commit(Object event, RkmField field, int lengthInBytes, Throwable failure) {
+    if (flightRecorder) {
+      FlightRecorderEvents.commitField(event, field.name(), lengthInBytes, describe(failure));
+    }
+  }
+
+  public void checksumComputed(RkmChecksumAlgorithm algorithm, long lengthInBytes, long durationNanos) {
+    if (flightRecorder) {
+      FlightRecorderEvents.commitChecksum(algorithm.algorithmName(), lengthInBytes, durationNanos);
+    }
+    listener.checksumComputed(algorithm, lengthInBytes, durationNanos);
+  }
+
+  public MapTimer beginMapDecode() {
+    return new MapTimer(true);
+  }
+
+  public MapTimer beginMapEncode() {
+    return new MapTimer(false);
+  }
+
+  /**
+   * Measures the time and calling-thread allocation of decoding or encoding a whole map. Exactly one of {@link #end(long)} and {@link #fail(long, Throwable)} should be called;
+   * any later call is ignored.
+   */
+  public final class MapTimer {
+
+    private final boolean decode;
+    private final Object event;
+    private final long start;
+    private final long startAllocatedBytes;
+    private boolean ended;
+
+    private MapTimer(boolean decode) {
+      this.decode = decode;
+      this.startAllocatedBytes = allocatedBytes();
+      this.start = System.nanoTime();
+      this.event = !flightRecorder ? null : decode ? FlightRecorderEvents.beginMapDecode() : FlightRecorderEvents.beginMapEncode();
+    }
+
+    public void end(long lengthInBytes) {
+      finish(lengthInBytes, null);
+    }
+
+    /**
+     * @param lengthInBytes the number of bytes read or written before the failure
+     */
+    public void fail(long lengthInBytes, Throwable failure) {
+      finish(lengthInBytes, Objects.requireNonNull(failure));
+    }
+
+    private void finish(long lengthInBytes, Throwable failure) {
+      if (ended) {
+        return;
+      }
+      ended = true;
+      long duration = System.nanoTime() - start;
+      long allocated = startAllocatedBytes < 0 ? -1 : allocatedBytes() - startAllocatedBytes;
+      if (flightRecorder) {
+        FlightRecorderEvents.commitMap(event, lengthInBytes, allocated, describe(failure));
+      }
+      if (decode) {
+        if (failure == null) {
+          listener.mapDecoded(lengthInBytes, duration, allocated);
+        } else {
+          listener.mapDecodeFailed(lengthInBytes, duration, allocated, failure);
+        }
+      } else {
+        if (failure == null) {
+          listener.mapEncoded(lengthInBytes, duration, allocated);
+        } else {
+          listener.mapEncodeFailed(lengthInBytes, duration, allocated, failure);
+        }
+      }
+    }
+
+  }
+
+  private static String describe(Throwable failure) {
+    return failure == null ? null : failure.toString();
+  }
+
+  private static long allocatedBytes() {
+    return threadAllocation ? ThreadAllocation.currentThreadAllocatedBytes() : -1;
+  }
+
+}
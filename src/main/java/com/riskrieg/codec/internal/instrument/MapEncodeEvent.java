@@ -0,0 +1,38 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.riskrieg.codec.MapEncode")
+@Label("Map Encode")
+@Category({"Riskrieg", "Codec"})
+@Description("An .rkm map was encoded.")
+@StackTrace(false)
+final class MapEncodeEvent extends Event {
+
+  @Label("Length")
+  @DataAmount
+  long lengthInBytes;
+
+  @Label("Allocated")
+  @Description("Bytes allocated on the calling thread, or -1 if this cannot be measured")
+  @DataAmount
+  long allocatedBytes;
+
+  @Label("Failure")
+  @Description("The exception the work failed with, or null if it succeeded")
+  String failure;
+
+}
@@ -0,0 +1,30 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.instrument;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures calling-thread allocation through com.sun.management. Only loaded when the jdk.management module is present.
+ */
+final class ThreadAllocation {
+
+  private static final com.sun.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+      && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+  private ThreadAllocation() {
+  }
+
+  /**
+   * @return the bytes allocated so far by the calling thread, or -1 if this cannot be measured
+   */
+  static long currentThreadAllocatedBytes() {
+    return threadBean == null ? -1 : threadBean.getCurrentThreadAllocatedBytes();
+  }
+
+}
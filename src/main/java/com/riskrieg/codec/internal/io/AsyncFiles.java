@@ -0,0 +1,105 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes whole files through {@link AsynchronousFileChannel}, so that no thread is blocked while the I/O is in progress.
+ */
+public final class AsyncFiles {
+
+  private AsyncFiles() {
+  }
+
+  public static CompletableFuture<byte[]> readAllBytes(Path path) {
+    CompletableFuture<byte[]> result = new CompletableFuture<>();
+    try {
+      AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE - 8) {
+        closeQuietly(channel);
+        throw new IllegalArgumentException("file is too large to be read into memory");
+      }
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      channel.read(buffer, 0, buffer, new CompletionHandler<>() {
+        @Override
+        public void completed(Integer bytesRead, ByteBuffer attachment) {
+          if (bytesRead >= 0 && attachment.hasRemaining()) {
+            channel.read(attachment, attachment.position(), attachment, this);
+            return;
+          }
+          closeQuietly(channel);
+          if (attachment.hasRemaining()) {
+            result.completeExceptionally(new IOException("file was truncated while it was being read"));
+          } else {
+            result.complete(attachment.array());
+          }
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer attachment) {
+          closeQuietly(channel);
+          result.completeExceptionally(exc);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Writes the data to the file, creating it if needed and replacing any existing content.
+   */
+  public static CompletableFuture<Void> write(Path path, byte[] data) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    try {
+      AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      channel.write(buffer, 0, buffer, new CompletionHandler<>() {
+        @Override
+        public void completed(Integer bytesWritten, ByteBuffer attachment) {
+          if (attachment.hasRemaining()) {
+            channel.write(attachment, attachment.position(), attachment, this);
+            return;
+          }
+          try {
+            channel.close();
+            result.complete(null);
+          } catch (IOException e) {
+            result.completeExceptionally(e);
+          }
+        }
+
+        @Override
+        public void failed(Throwable exc, ByteBuffer attachment) {
+          closeQuietly(channel);
+          result.completeExceptionally(exc);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private static void closeQuietly(AsynchronousFileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} that reads directly from a view of a {@link ByteBuffer}, so image data can be decoded without being copied into a separate
+ * array or cached by ImageIO first.
+ */
+public final class ByteBufferImageInputStream extends ImageInputStreamImpl {
+
+  private final ByteBuffer buffer;
+
+  public ByteBufferImageInputStream(@NonNull ByteBuffer buffer) {
+    this.buffer = Objects.requireNonNull(buffer).slice();
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkClosed();
+    bitOffset = 0;
+    if (streamPos >= buffer.limit()) {
+      return -1;
+    }
+    return buffer.get((int) streamPos++) & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    checkClosed();
+    Objects.checkFromIndexSize(off, len, b.length);
+    bitOffset = 0;
+    if (len == 0) {
+      return 0;
+    }
+    if (streamPos >= buffer.limit()) {
+      return -1;
+    }
+    int count = (int) Math.min(len, buffer.limit() - streamPos);
+    buffer.get((int) streamPos, b, off, count);
+    streamPos += count;
+    return count;
+  }
+
+  @Override
+  public long length() {
+    return buffer.limit();
+  }
+
+}
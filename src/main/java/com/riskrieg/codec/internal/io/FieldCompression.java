@@ -0,0 +1,121 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import com.riskrieg.codec.RkmField;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses and decompresses the data of {@link RkmField#DEFLATED} fields, whose data is [wrapped-field-name][uncompressed-length-as-int][zlib-data].
+ */
+public final class FieldCompression {
+
+  public static final int HEADER_LENGTH = 4 + 4;
+
+  // DEFLATE cannot expand data by more than a factor of about 1032, so anything above this is a corrupt length rather than a real one.
+  private static final int MAX_EXPANSION = 1032;
+
+  // The declared length is only trusted once the data has actually inflated that far, so the output starts small and grows as needed.
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
+  private FieldCompression() {
+  }
+
+  /**
+   * @return whether the field can be wrapped in a {@link RkmField#DEFLATED} field
+   */
+  public static boolean canWrap(RkmField field) {
+    return switch (field) {
+      case CHECKSUM_ALGORITHM, CHECKSUM, FIELD_INDEX, DEFLATED -> false;
+      default -> true;
+    };
+  }
+
+  /**
+   * @return the complete data of a {@link RkmField#DEFLATED} field wrapping the concatenation of the remaining bytes of the given parts, which are not consumed
+   */
+  public static ByteBuffer deflate(RkmField field, int level, ByteBuffer... parts) {
+    int uncompressedLength = 0;
+    for (ByteBuffer part : parts) {
+      uncompressedLength = Math.addExact(uncompressedLength, part.remaining());
+    }
+    FieldDataStream bos = new FieldDataStream(HEADER_LENGTH + uncompressedLength / 4);
+    bos.writeBytes(field.fieldName());
+    bos.writeBytes(ByteBuffer.allocate(4).putInt(uncompressedLength).array());
+    Deflater deflater = new Deflater(level);
+    try {
+      byte[] chunk = new byte[8192];
+      for (ByteBuffer part : parts) {
+        deflater.setInput(part.duplicate()); // Read straight from the part, rather than from a copy of it.
+        while (!deflater.needsInput()) {
+          bos.write(chunk, 0, deflater.deflate(chunk));
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        bos.write(chunk, 0, deflater.deflate(chunk));
+      }
+    } finally {
+      deflater.end();
+    }
+    return bos.data();
+  }
+
+  /**
+   * Inflates the data of a {@link RkmField#DEFLATED} field. The output grows as the data inflates, so a corrupt declared length cannot make it allocate more than the data
+   * actually expands to.
+   *
+   * @param data the complete field data, including the header
+   * @return the uncompressed data of the wrapped field
+   */
+  public static ByteBuffer inflate(ByteBuffer data) {
+    int compressedLength = data.limit() - HEADER_LENGTH;
+    if (compressedLength < 1) {
+      throw new IllegalArgumentException("compressed field is too short");
+    }
+    int uncompressedLength = data.getInt(4);
+    if (uncompressedLength < 1) {
+      throw new IllegalArgumentException("field length cannot be negative or zero");
+    } else if (uncompressedLength > (long) compressedLength * MAX_EXPANSION) {
+      throw new IllegalArgumentException("uncompressed field length is too large for its compressed data");
+    }
+
+    byte[] result = new byte[(int) Math.min(uncompressedLength, Math.max(INITIAL_CAPACITY, (long) compressedLength * 4))];
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data.slice(HEADER_LENGTH, compressedLength));
+      int length = 0;
+      while (length < uncompressedLength && !inflater.finished()) {
+        if (length == result.length) {
+          result = Arrays.copyOf(result, (int) Math.min(uncompressedLength, (long) result.length * 2));
+        }
+        int inflated = inflater.inflate(result, length, result.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflated;
+      }
+      if (length == uncompressedLength && !inflater.finished()) {
+        length += inflater.inflate(new byte[1]); // Reaches the end of the stream, or finds that there is more data than declared.
+      }
+      if (length != uncompressedLength || !inflater.finished()) {
+        throw new IllegalArgumentException("compressed field does not match its uncompressed length");
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("compressed field data is invalid", e);
+    } finally {
+      inflater.end();
+    }
+    return ByteBuffer.wrap(result); // Only full once the declared length has been reached.
+  }
+
+}
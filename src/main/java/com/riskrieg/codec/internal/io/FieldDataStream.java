@@ -0,0 +1,33 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteArrayOutputStream} whose contents can be handed to a {@link FieldOutput} without copying them into a new array first.
+ */
+public final class FieldDataStream extends ByteArrayOutputStream {
+
+  public FieldDataStream() {
+    super();
+  }
+
+  public FieldDataStream(int size) {
+    super(size);
+  }
+
+  /**
+   * @return a buffer over everything written so far, which shares this stream's array and so is only valid until the next write
+   */
+  public ByteBuffer data() {
+    return ByteBuffer.wrap(buf, 0, count);
+  }
+
+}
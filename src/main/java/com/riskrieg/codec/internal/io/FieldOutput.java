@@ -0,0 +1,143 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2021-2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Where encoded fields are written. The header and data of a field are handed over together, so they can go out as a single gathering write on channels that support it,
+ * and nothing has to be copied into an intermediate buffer first.
+ */
+public abstract sealed class FieldOutput permits FieldOutput.StreamOutput, FieldOutput.ChannelOutput, FieldOutput.BufferOutput {
+
+  private FieldOutput() {
+  }
+
+  public static FieldOutput of(OutputStream output) {
+    return new StreamOutput(output);
+  }
+
+  /**
+   * @param channel a channel in blocking mode
+   */
+  public static FieldOutput of(WritableByteChannel channel) {
+    if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+      throw new IllegalBlockingModeException();
+    }
+    return new ChannelOutput(channel);
+  }
+
+  /**
+   * Writes into the buffer, starting at its position.
+   */
+  public static FieldOutput of(ByteBuffer buffer) {
+    return new BufferOutput(buffer);
+  }
+
+  /**
+   * Writes the remaining bytes of every buffer, in order. The buffers are consumed.
+   */
+  public abstract void write(ByteBuffer... buffers) throws IOException;
+
+  /**
+   * Writes the remaining bytes of the buffer to the stream, without copying them if the buffer is backed by an array. The buffer is consumed.
+   */
+  public static void write(OutputStream output, ByteBuffer buffer) throws IOException {
+    if (buffer.hasArray()) {
+      output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      buffer.position(buffer.limit());
+      return;
+    }
+    byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+    while (buffer.hasRemaining()) {
+      int length = Math.min(buffer.remaining(), chunk.length);
+      buffer.get(chunk, 0, length);
+      output.write(chunk, 0, length);
+    }
+  }
+
+  static final class StreamOutput extends FieldOutput {
+
+    private final OutputStream output;
+
+    private StreamOutput(OutputStream output) {
+      this.output = Objects.requireNonNull(output);
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) throws IOException {
+      for (ByteBuffer buffer : buffers) {
+        write(output, buffer);
+      }
+    }
+
+  }
+
+  static final class ChannelOutput extends FieldOutput {
+
+    private final WritableByteChannel channel;
+
+    private ChannelOutput(WritableByteChannel channel) {
+      this.channel = Objects.requireNonNull(channel);
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) throws IOException {
+      if (channel instanceof GatheringByteChannel gathering) {
+        long remaining = remaining(buffers);
+        while (remaining > 0) {
+          remaining -= gathering.write(buffers);
+        }
+        return;
+      }
+      for (ByteBuffer buffer : buffers) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+
+  }
+
+  static final class BufferOutput extends FieldOutput {
+
+    private final ByteBuffer target;
+
+    private BufferOutput(ByteBuffer target) {
+      this.target = Objects.requireNonNull(target);
+    }
+
+    @Override
+    public void write(ByteBuffer... buffers) {
+      if (remaining(buffers) > target.remaining()) { // Checked up front, so a field is never written partially.
+        throw new BufferOverflowException();
+      }
+      for (ByteBuffer buffer : buffers) {
+        target.put(buffer);
+      }
+    }
+
+  }
+
+  private static long remaining(ByteBuffer[] buffers) {
+    long remaining = 0;
+    for (ByteBuffer buffer : buffers) {
+      remaining += buffer.remaining();
+    }
+    return remaining;
+  }
+
+}
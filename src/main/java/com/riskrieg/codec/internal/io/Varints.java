@@ -0,0 +1,54 @@
+/*
+ *     Riskrieg, an open-source conflict simulation game.
+ *     Copyright (C) 2022 Aaron Yoder <aaronjyoder@gmail.com> and the Riskrieg contributors
+ *
+ *     This code is licensed under the MIT license.
+ */
+
+package com.riskrieg.codec.internal.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 variable-length integers: seven bits per byte, least significant group first, with the high bit set on every byte except the last.
+ */
+public final class Varints {
+
+  private Varints() {
+  }
+
+  public static void write(int value, OutputStream outputStream) throws IOException {
+    if (value < 0) {
+      throw new IllegalArgumentException("varint value cannot be negative");
+    }
+    while ((value & ~0x7F) != 0) {
+      outputStream.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    outputStream.write(value);
+  }
+
+  /**
+   * Reads a varint starting at the buffer's position, advancing the position past it.
+   */
+  public static int read(ByteBuffer buffer) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      byte b = buffer.get();
+      if (shift == 28 && (b & 0xF0) != 0) { // The fifth byte only holds the top four bits, so anything above them would be silently lost.
+        throw new IllegalArgumentException("varint value is too large");
+      }
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (result < 0) {
+          throw new IllegalArgumentException("varint value is too large");
+        }
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("varint value is too large");
+  }
+
+}
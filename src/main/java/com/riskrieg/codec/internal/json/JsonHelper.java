@@ -7,32 +7,50 @@
 
 package com.riskrieg.codec.internal.json;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper.DefaultTyping;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class JsonHelper {
 
   private JsonHelper() {
   }
 
+  private static final Object lock = new Object();
+
+  // Guarded by lock. The mapper is rebuilt only when the configuration changes, since building one discards all of Jackson's serializer and deserializer caches.
   private static JsonMapper.Builder jsonAdapterBuilder = JsonMapper.builder().addModule(new JavaTimeModule());
+  private static volatile Adapter adapter = new Adapter(jsonAdapterBuilder.build());
 
   public static void registerIfBaseType(final Class<?>... baseClasses) {
     var builder = BasicPolymorphicTypeValidator.builder();
     for (Class<?> baseClass : baseClasses) {
       builder.allowIfBaseType(baseClass);
     }
-    jsonAdapterBuilder = jsonAdapterBuilder.activateDefaultTypingAsProperty(builder.build(), DefaultTyping.NON_FINAL, "type");
+    synchronized (lock) {
+      jsonAdapterBuilder = jsonAdapterBuilder.activateDefaultTypingAsProperty(builder.build(), DefaultTyping.NON_FINAL, "type");
+      adapter = new Adapter(jsonAdapterBuilder.build());
+    }
   }
 
   public static void registerIfSubType(final Class<?>... subClasses) {
@@ -40,11 +58,52 @@ public class JsonHelper {
     for (Class<?> subClass : subClasses) {
       builder.allowIfSubType(subClass);
     }
-    jsonAdapterBuilder = jsonAdapterBuilder.activateDefaultTypingAsProperty(builder.build(), DefaultTyping.NON_FINAL, "type");
+    synchronized (lock) {
+      jsonAdapterBuilder = jsonAdapterBuilder.activateDefaultTypingAsProperty(builder.build(), DefaultTyping.NON_FINAL, "type");
+      adapter = new Adapter(jsonAdapterBuilder.build());
+    }
   }
 
-  private static JsonMapper jsonAdapter() {
-    return jsonAdapterBuilder.build();
+  /**
+   * An immutable snapshot of the mapper for one configuration, along with the readers and writers created from it. All of these are thread-safe.
+   */
+  private static final class Adapter {
+
+    private final JsonMapper mapper;
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectWriter> prettyWriters = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectWriter> compactWriters = new ConcurrentHashMap<>();
+    private final Map<Type, Set<String>> propertyNames = new ConcurrentHashMap<>();
+
+    private Adapter(JsonMapper mapper) {
+      this.mapper = mapper;
+    }
+
+    private ObjectReader reader(Type type) {
+      return readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t)));
+    }
+
+    private Set<String> propertyNames(Type type) {
+      return propertyNames.computeIfAbsent(type, t -> {
+        var description = mapper.getDeserializationConfig().introspect(mapper.constructType(t));
+        return description.findProperties().stream().map(BeanPropertyDefinition::getName).collect(Collectors.toUnmodifiableSet());
+      });
+    }
+
+    /**
+     * Writers never close the target, so that streams passed in by the caller stay open.
+     */
+    private ObjectWriter writer(Type type, boolean pretty) {
+      if (pretty) {
+        return prettyWriters.computeIfAbsent(type, t -> compactWriter(t).withDefaultPrettyPrinter());
+      }
+      return compactWriters.computeIfAbsent(type, this::compactWriter);
+    }
+
+    private ObjectWriter compactWriter(Type type) {
+      return mapper.writerFor(mapper.constructType(type)).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
   }
 
   // Read
@@ -52,7 +111,7 @@ public class JsonHelper {
   @Nullable
   public static <T> T read(@NonNull Path path, @NonNull Class<T> type) throws IOException {
     if (Files.isRegularFile(path) && Files.isReadable(path)) {
-      return jsonAdapter().readValue(Files.newBufferedReader(path), jsonAdapter().constructType(type));
+      return adapter.reader(type).readValue(Files.newBufferedReader(path));
     }
     return null;
   }
@@ -60,30 +119,75 @@ public class JsonHelper {
   @Nullable
   public static <T> T read(@NonNull Path path, @NonNull Type type) throws IOException {
     if (Files.isRegularFile(path) && Files.isReadable(path)) {
-      return jsonAdapter().readValue(Files.newBufferedReader(path), jsonAdapter().constructType(type));
+      return adapter.reader(type).readValue(Files.newBufferedReader(path));
     }
     return null;
   }
 
   @Nullable
   public static <T> T read(@NonNull String string, @NonNull Type type) throws IOException {
-    return jsonAdapter().readValue(string, jsonAdapter().constructType(type));
+    return adapter.reader(type).readValue(string);
+  }
+
+  /**
+   * Parses a tree from the stream, leaving the stream open.
+   */
+  public static JsonNode readTree(@NonNull InputStream inputStream) throws IOException {
+    return adapter.mapper.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE).readTree(inputStream);
+  }
+
+  public static JsonNode readTree(@NonNull byte[] data) throws IOException {
+    return adapter.mapper.readTree(data);
+  }
+
+  @Nullable
+  public static <T> T read(@NonNull JsonNode tree, @NonNull Type type) throws IOException {
+    return adapter.reader(type).readValue(tree);
+  }
+
+  /**
+   * @return whether the tree is an object whose fields are all properties of the given type, meaning that it can be bound to the type without any unknown properties
+   */
+  public static boolean hasOnlyPropertiesOf(@NonNull JsonNode tree, @NonNull Type type) {
+    if (!tree.isObject()) {
+      return false;
+    }
+    Set<String> propertyNames = adapter.propertyNames(type);
+    Iterator<String> fieldNames = tree.fieldNames();
+    while (fieldNames.hasNext()) {
+      if (!propertyNames.contains(fieldNames.next())) {
+        return false;
+      }
+    }
+    return true;
   }
 
   // Write
 
   public static <T> void write(@NonNull Path path, @NonNull Class<T> type, @NonNull T object) throws IOException {
-    Files.createDirectories(path.getParent());
-    Files.writeString(path, jsonAdapter().writerWithDefaultPrettyPrinter().writeValueAsString(object), StandardCharsets.UTF_8);
+    write(path, (Type) type, object, true);
   }
 
   public static <T> void write(@NonNull Path path, @NonNull Type type, @NonNull T object) throws IOException {
+    write(path, type, object, true);
+  }
+
+  public static <T> void write(@NonNull Path path, @NonNull Type type, @NonNull T object, boolean pretty) throws IOException {
     Files.createDirectories(path.getParent());
-    Files.writeString(path, jsonAdapter().writerWithDefaultPrettyPrinter().writeValueAsString(object), StandardCharsets.UTF_8);
+    try (OutputStream outputStream = Files.newOutputStream(path)) {
+      adapter.writer(type, pretty).writeValue(outputStream, object);
+    }
   }
 
   public static <T> void write(@NonNull OutputStream outputStream, @NonNull Type type, @NonNull T object) throws IOException {
-    outputStream.write(jsonAdapter().writerWithDefaultPrettyPrinter().writeValueAsString(object).getBytes(StandardCharsets.UTF_8));
+    write(outputStream, type, object, true);
+  }
+
+  /**
+   * Streams the object to the output through the generator, without rendering it to an intermediate string. The stream is flushed but not closed.
+   */
+  public static <T> void write(@NonNull OutputStream outputStream, @NonNull Type type, @NonNull T object, boolean pretty) throws IOException {
+    adapter.writer(type, pretty).writeValue(outputStream, object);
   }
 
 }